@@ -0,0 +1,13 @@
+package study.querydsl.filter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//값이 있으면 path.loe(value) 조건을 만든다. path 를 비우면 필드 이름을 쓴다
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Loe {
+    String value() default "";
+}
@@ -0,0 +1,16 @@
+package study.querydsl.filter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//검색 조건 클래스에 붙이면 컴파일 시점에 <클래스명>Filter 가 만들어진다
+//경로의 첫 마디가 joins 엔티티의 기본 별칭(QTeam.team 의 team)과 같으면 그 별칭에서, 아니면 value 엔티티에서 시작한다
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface QueryFilter {
+    Class<?> value();
+
+    Class<?>[] joins() default {};
+}
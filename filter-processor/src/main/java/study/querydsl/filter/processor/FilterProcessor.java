@@ -0,0 +1,304 @@
+package study.querydsl.filter.processor;
+
+import study.querydsl.filter.Eq;
+import study.querydsl.filter.Goe;
+import study.querydsl.filter.Gt;
+import study.querydsl.filter.Loe;
+import study.querydsl.filter.Lt;
+import study.querydsl.filter.QueryFilter;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//@QueryFilter 가 붙은 검색 조건마다 Querydsl 조건을 만드는 코드를 생성한다. 실행 시점에는 리플렉션 없이 생성된 메서드만 호출된다
+public class FilterProcessor extends AbstractProcessor {
+
+    private static final Map<String, String> OPERATORS = new LinkedHashMap<>();
+    //생성되는 메서드, 타입, 지역 변수 이름과 겹치면 안 된다
+    private static final Set<String> RESERVED_NAMES = Set.of("of", "condition", "overrides", "DEFAULTS", "Overrides");
+
+    static {
+        OPERATORS.put(Eq.class.getCanonicalName(), "eq");
+        OPERATORS.put(Goe.class.getCanonicalName(), "goe");
+        OPERATORS.put(Loe.class.getCanonicalName(), "loe");
+        OPERATORS.put(Gt.class.getCanonicalName(), "gt");
+        OPERATORS.put(Lt.class.getCanonicalName(), "lt");
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        Set<String> types = new LinkedHashSet<>(OPERATORS.keySet());
+        types.add(QueryFilter.class.getCanonicalName());
+        return types;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for(TypeElement annotation : annotations){
+            if(!OPERATORS.containsKey(annotation.getQualifiedName().toString())){
+                continue;
+            }
+            for(Element field : roundEnv.getElementsAnnotatedWith(annotation)){
+                if(field.getEnclosingElement().getAnnotation(QueryFilter.class) == null){
+                    error(field, "@" + annotation.getSimpleName() + " needs @QueryFilter on the enclosing class");
+                }
+            }
+        }
+        for(Element element : roundEnv.getElementsAnnotatedWith(QueryFilter.class)){
+            if(element.getKind() != ElementKind.CLASS){
+                error(element, "@QueryFilter can only be placed on a class");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<FilterField> fields = fieldsOf(type);
+            if(fields == null){
+                continue;
+            }
+            try {
+                write(type, fields);
+            } catch (IOException e) {
+                error(type, "failed to write filter: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private List<FilterField> fieldsOf(TypeElement type){
+        AnnotationMirror queryFilter = mirrorOf(type, QueryFilter.class.getCanonicalName());
+        TypeElement root = (TypeElement) ((DeclaredType) valueOf(queryFilter, "value")).asElement();
+        Map<String, TypeElement> joins = new LinkedHashMap<>();
+        for(Object join : (List<?>) valueOf(queryFilter, "joins")){
+            TypeElement joinType = (TypeElement) ((DeclaredType) ((AnnotationValue) join).getValue()).asElement();
+            joins.put(aliasOf(joinType), joinType);
+        }
+
+        boolean valid = true;
+        List<FilterField> fields = new ArrayList<>();
+        for(VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())){
+            if(field.getModifiers().contains(Modifier.STATIC)){
+                continue;
+            }
+            List<AnnotationMirror> operators = new ArrayList<>();
+            for(AnnotationMirror mirror : field.getAnnotationMirrors()){
+                if(OPERATORS.containsKey(nameOf(mirror))){
+                    operators.add(mirror);
+                }
+            }
+            if(operators.isEmpty()){
+                continue;
+            }
+            if(operators.size() > 1){
+                error(field, "only one filter operator is allowed per field");
+                valid = false;
+                continue;
+            }
+            AnnotationMirror operator = operators.get(0);
+            String path = (String) valueOf(operator, "value");
+            if(path.isEmpty()){
+                path = field.getSimpleName().toString();
+            }
+            List<String> segments = Arrays.asList(path.split("\\.", -1));
+            if(segments.stream().anyMatch(segment -> !SourceVersion.isName(segment))){
+                error(field, "invalid filter path: " + path);
+                valid = false;
+                continue;
+            }
+            if(RESERVED_NAMES.contains(field.getSimpleName().toString())){
+                error(field, "a filter field can't be named '" + field.getSimpleName() + "'");
+                valid = false;
+                continue;
+            }
+            fields.add(new FilterField(field, OPERATORS.get(nameOf(operator)), pathOf(root, joins, segments)));
+        }
+        return valid ? fields : null;
+    }
+
+    //경로 첫 마디가 조인 별칭이면 그 별칭에서 시작한다. 기준 엔티티 별칭으로 시작해도 된다
+    private String pathOf(TypeElement root, Map<String, TypeElement> joins, List<String> segments){
+        String first = segments.get(0);
+        if(segments.size() > 1 && joins.containsKey(first)){
+            return qTypeOf(joins.get(first)) + "." + first + "." + String.join(".", segments.subList(1, segments.size()));
+        }
+        if(segments.size() > 1 && aliasOf(root).equals(first)){
+            return qTypeOf(root) + "." + first + "." + String.join(".", segments.subList(1, segments.size()));
+        }
+        return qTypeOf(root) + "." + aliasOf(root) + "." + String.join(".", segments);
+    }
+
+    private void write(TypeElement type, List<FilterField> fields) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String filterName = type.getSimpleName() + "Filter";
+        String conditionType = type.getQualifiedName().toString();
+        String qualifiedName = packageName.isEmpty() ? filterName : packageName + "." + filterName;
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())) {
+            if(!packageName.isEmpty()){
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import com.querydsl.core.types.Predicate;");
+            out.println("import com.querydsl.core.types.dsl.BooleanExpression;");
+            out.println();
+            out.println("@javax.annotation.processing.Generated(\"" + FilterProcessor.class.getName() + "\")");
+            out.println("public final class " + filterName + " {");
+            out.println();
+            out.println("    private " + filterName + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    public static final Overrides DEFAULTS = new Overrides() {");
+            out.println("    };");
+            out.println();
+            out.println("    //필드 하나의 조건만 바꿔야 할 때 그 메서드만 재정의한다. 값이 있을 때만 불린다");
+            out.println("    public interface Overrides {");
+            for(FilterField field : fields){
+                String name = field.name();
+                out.println();
+                out.println("        default BooleanExpression " + name + "(" + field.element.asType() + " " + name + ") {");
+                out.println("            return " + filterName + "." + name + "(" + name + ");");
+                out.println("        }");
+            }
+            out.println("    }");
+            out.println();
+            out.println("    public static Predicate[] of(" + conditionType + " condition) {");
+            out.println("        return of(condition, DEFAULTS);");
+            out.println("    }");
+            out.println();
+            out.println("    public static Predicate[] of(" + conditionType + " condition, Overrides overrides) {");
+            for(FilterField field : fields){
+                String name = field.name();
+                out.println("        " + field.element.asType() + " " + name + " = condition." + accessorOf(field.element) + ";");
+            }
+            out.println("        return new Predicate[]{");
+            for(int i = 0; i < fields.size(); i++){
+                FilterField field = fields.get(i);
+                String name = field.name();
+                String presence = presenceOf(field.element.asType(), name);
+                String call = "overrides." + name + "(" + name + ")";
+                out.println("                " + (presence == null ? call : presence + " ? " + call + " : null")
+                        + (i < fields.size() - 1 ? "," : ""));
+            }
+            out.println("        };");
+            out.println("    }");
+            for(FilterField field : fields){
+                String name = field.name();
+                out.println();
+                out.println("    public static BooleanExpression " + name + "(" + field.element.asType() + " " + name + ") {");
+                String presence = presenceOf(field.element.asType(), name);
+                String predicate = field.path + "." + field.operator + "(" + name + ")";
+                out.println("        return " + (presence == null ? predicate : presence + " ? " + predicate + " : null") + ";");
+                out.println("    }");
+            }
+            out.println("}");
+        }
+    }
+
+    //값이 없으면 조건을 빼서 where 에서 무시되도록 null 을 돌려준다
+    private String presenceOf(TypeMirror type, String name){
+        if(type.getKind().isPrimitive()){
+            return null;
+        }
+        if(type.toString().equals(String.class.getName())){
+            return name + " != null && !" + name + ".isBlank()";
+        }
+        return name + " != null";
+    }
+
+    //private 필드는 게터로 읽는다. 롬복 게터도 같은 이름 규칙을 따른다
+    private String accessorOf(VariableElement field){
+        String name = field.getSimpleName().toString();
+        if(!field.getModifiers().contains(Modifier.PRIVATE)){
+            return name;
+        }
+        String prefix = field.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get";
+        return prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "()";
+    }
+
+    //Querydsl 기본 규칙: 같은 패키지의 Q + 클래스명(중첩 클래스는 _ 로 이음), 기본 별칭은 첫 글자를 소문자로
+    private String qTypeOf(TypeElement entity){
+        String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+        List<String> names = new ArrayList<>();
+        Element current = entity;
+        while(current instanceof TypeElement){
+            names.add(0, current.getSimpleName().toString());
+            current = current.getEnclosingElement();
+        }
+        String simpleName = "Q" + String.join("_", names);
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    private static String aliasOf(TypeElement entity){
+        String name = entity.getSimpleName().toString();
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String nameOf(AnnotationMirror mirror){
+        return ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private static AnnotationMirror mirrorOf(Element element, String annotation){
+        for(AnnotationMirror mirror : element.getAnnotationMirrors()){
+            if(nameOf(mirror).equals(annotation)){
+                return mirror;
+            }
+        }
+        throw new IllegalStateException(annotation + " not found on " + element);
+    }
+
+    private Object valueOf(AnnotationMirror mirror, String name){
+        for(Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()){
+            if(entry.getKey().getSimpleName().contentEquals(name)){
+                return entry.getValue().getValue();
+            }
+        }
+        throw new IllegalStateException(name + " not found on " + mirror);
+    }
+
+    private void error(Element element, String message){
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static class FilterField {
+        private final VariableElement element;
+        private final String operator;
+        private final String path;
+
+        FilterField(VariableElement element, String operator, String path) {
+            this.element = element;
+            this.operator = operator;
+            this.path = path;
+        }
+
+        String name(){
+            return element.getSimpleName().toString();
+        }
+    }
+}
@@ -3,7 +3,10 @@ package study.querydsl;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
+import study.querydsl.repository.change.ChangeFeed;
+import study.querydsl.repository.change.ChangePublishingQueryFactory;
 
 import javax.persistence.EntityManager;
 
@@ -11,11 +14,16 @@ import javax.persistence.EntityManager;
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(QuerydslApplication.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(QuerydslApplication.class, args);
+		//AppCDS 클래스 목록을 만들 때는 워밍업(ApplicationRunner)까지만 실행하고 종료
+		if(context.getEnvironment().getProperty("warmup.exit", Boolean.class, false)){
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
+	//벌크 update/delete 를 변경 피드에 알리는 팩토리
 	@Bean
-	JPAQueryFactory jpaQueryFactory(EntityManager em){
-		return new JPAQueryFactory(em);
+	JPAQueryFactory jpaQueryFactory(EntityManager em, ChangeFeed changeFeed){
+		return new ChangePublishingQueryFactory(em, changeFeed);
 	}
 }
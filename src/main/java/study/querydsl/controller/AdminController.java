@@ -0,0 +1,85 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.controller.limit.SearchLimiter;
+import study.querydsl.monitor.LatencyRecorder;
+import study.querydsl.monitor.PoolWaitMetrics;
+import study.querydsl.repository.cache.ForestRollupCache;
+import study.querydsl.repository.cache.MemberCache;
+import study.querydsl.repository.cache.QueryResultCache;
+import study.querydsl.repository.change.ChangeFeed;
+import study.querydsl.repository.support.SingleFlight;
+import study.querydsl.service.TeamTransferService;
+import study.querydsl.startup.StartupMetrics;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final MemberCache memberCache;
+    private final PoolWaitMetrics poolWaitMetrics;
+    private final ChangeFeed changeFeed;
+    private final SearchLimiter searchLimiter;
+    private final StartupMetrics startupMetrics;
+    private final SingleFlight singleFlight;
+    private final TeamTransferService teamTransferService;
+    private final ForestRollupCache forestRollupCache;
+    private final QueryResultCache queryResultCache;
+    private final LatencyRecorder latencyRecorder;
+
+    @GetMapping("/member-cache")
+    public Map<String, Object> memberCacheStats(){
+        return memberCache.stats();
+    }
+
+    @GetMapping("/pool")
+    public Map<String, Object> poolStats(){
+        return poolWaitMetrics.snapshot();
+    }
+
+    @GetMapping("/change-feed")
+    public Map<String, Object> changeFeedStats(){
+        return changeFeed.stats();
+    }
+
+    @GetMapping("/search-limit")
+    public Map<String, Object> searchLimitStats(){
+        return searchLimiter.stats();
+    }
+
+    @GetMapping("/startup")
+    public Map<String, Object> startupStats(){
+        return startupMetrics.snapshot();
+    }
+
+    @GetMapping("/single-flight")
+    public Map<String, Object> singleFlightStats(){
+        return singleFlight.stats();
+    }
+
+    @GetMapping("/team-transfer")
+    public Map<String, Object> teamTransferStats(){
+        return teamTransferService.stats();
+    }
+
+    @GetMapping("/forest-rollup")
+    public Map<String, Object> forestRollupStats(){
+        return forestRollupCache.stats();
+    }
+
+    @GetMapping("/query-cache")
+    public Map<String, Object> queryCacheStats(){
+        return queryResultCache.stats();
+    }
+
+    @GetMapping("/latency")
+    public Map<String, Object> latencyStats(){
+        return latencyRecorder.snapshot();
+    }
+}
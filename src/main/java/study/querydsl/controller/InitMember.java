@@ -1,11 +1,13 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.shard.MemberShards;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
@@ -28,8 +30,20 @@ public class InitMember {
         @PersistenceContext
         private EntityManager em;
 
+        private final ObjectProvider<MemberShards> memberShards;
+
+        InitMemberService(ObjectProvider<MemberShards> memberShards) {
+            this.memberShards = memberShards;
+        }
+
         @Transactional
         public void init(){
+            //샤딩을 켜면 회원/팀은 샤드에만 둔다
+            MemberShards shards = memberShards.getIfAvailable();
+            if(shards != null){
+                initShards(shards);
+                return;
+            }
             Team teamA = new Team("teamA");
             Team teamB = new Team("teamB");
             em.persist(teamA);
@@ -40,5 +54,15 @@ public class InitMember {
                 em.persist(Member.builder().username("member"+i).age(i).team(selectedTeam).build());
             }
         }
+
+        private void initShards(MemberShards shards){
+            Team teamA = shards.saveTeam(new Team("teamA"));
+            Team teamB = shards.saveTeam(new Team("teamB"));
+
+            for(int i = 0; i<100; i++){
+                Team selectedTeam = i%2 == 0 ? teamA:teamB;
+                shards.saveMember(Member.builder().username("member"+i).age(i).team(selectedTeam).build());
+            }
+        }
     }
 }
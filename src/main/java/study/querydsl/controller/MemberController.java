@@ -4,7 +4,10 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.controller.limit.QueryTimeout;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
@@ -16,19 +19,34 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MemberController {
 
+    //조건마다 select 절에 컬럼이 하나씩 붙으므로 한 요청에 받을 조건 수를 제한한다
+    private static final int MAX_BATCH_CONDITIONS = 50;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
 
+    @QueryTimeout(millis = 2000)
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
         return memberJpaRepository.search(condition);
     }
 
+    @QueryTimeout(millis = 3000)
+    @PostMapping("/v1/members/batch")
+    public List<List<MemberTeamDto>> searchMemberBatch(@RequestBody List<MemberSearchCondition> conditions){
+        if(conditions.size() > MAX_BATCH_CONDITIONS){
+            throw new TooManyConditionsException(conditions.size(), MAX_BATCH_CONDITIONS);
+        }
+        return memberRepository.searchBatch(conditions);
+    }
+
+    @QueryTimeout(millis = 3000)
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
         return memberRepository.searchPageSimple(condition, pageable);
     }
 
+    @QueryTimeout(millis = 3000)
     @GetMapping("/v3/members")
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
         return memberRepository.searchPageComplex(condition, pageable);
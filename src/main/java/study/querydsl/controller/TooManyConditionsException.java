@@ -0,0 +1,11 @@
+package study.querydsl.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class TooManyConditionsException extends RuntimeException {
+    public TooManyConditionsException(int size, int max) {
+        super("Too many search conditions: " + size + " (max " + max + ")");
+    }
+}
@@ -0,0 +1,14 @@
+package study.querydsl.controller.limit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//핸들러 하나가 쓸 수 있는 전체 쿼리 시간
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryTimeout {
+
+    long millis();
+}
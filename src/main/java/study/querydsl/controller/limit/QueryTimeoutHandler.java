@@ -0,0 +1,26 @@
+package study.querydsl.controller.limit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+@RestControllerAdvice
+@RequiredArgsConstructor
+public class QueryTimeoutHandler {
+
+    private final SearchLimiter searchLimiter;
+
+    //저장소 밖에서 던져진 경우는 번역되지 않은 JPA 예외로 올라온다
+    @ExceptionHandler({QueryTimeoutException.class, javax.persistence.QueryTimeoutException.class})
+    public ResponseEntity<Map<String, String>> queryTimeout(RuntimeException e){
+        searchLimiter.recordTimeout();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(Map.of("error", "query timeout"));
+    }
+}
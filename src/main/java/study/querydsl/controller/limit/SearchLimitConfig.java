@@ -0,0 +1,18 @@
+package study.querydsl.controller.limit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class SearchLimitConfig implements WebMvcConfigurer {
+
+    private final SearchLimiter searchLimiter;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new SearchLimitInterceptor(searchLimiter));
+    }
+}
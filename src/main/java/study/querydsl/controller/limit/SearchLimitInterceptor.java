@@ -0,0 +1,45 @@
+package study.querydsl.controller.limit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.repository.support.QueryTimeouts;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@RequiredArgsConstructor
+public class SearchLimitInterceptor implements HandlerInterceptor {
+
+    private static final String ACQUIRED = SearchLimitInterceptor.class.getName() + ".ACQUIRED";
+
+    private final SearchLimiter limiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if(!(handler instanceof HandlerMethod)){
+            return true;
+        }
+        QueryTimeout timeout = ((HandlerMethod) handler).getMethodAnnotation(QueryTimeout.class);
+        if(timeout == null){
+            return true;
+        }
+        if(!limiter.tryAcquire()){
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", "1");
+            return false;
+        }
+        request.setAttribute(ACQUIRED, Boolean.TRUE);
+        QueryTimeouts.start(timeout.millis());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if(request.getAttribute(ACQUIRED) != null){
+            QueryTimeouts.clear();
+            limiter.release();
+        }
+    }
+}
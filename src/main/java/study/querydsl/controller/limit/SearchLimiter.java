@@ -0,0 +1,96 @@
+package study.querydsl.controller.limit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.monitor.PoolWaitMetrics;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//커넥션 대기 시간이 길어지면 동시 실행 한도를 줄이고(AIMD), 한도를 넘는 요청은 바로 거절
+@Component
+public class SearchLimiter {
+
+    private final PoolWaitMetrics poolWaitMetrics;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long waitThresholdNanos;
+    private final long adjustIntervalNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger limit;
+    private final AtomicLong lastAdjusted = new AtomicLong(System.nanoTime());
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public SearchLimiter(PoolWaitMetrics poolWaitMetrics,
+                         @Value("${member.search.limit.min-concurrency:2}") int minLimit,
+                         @Value("${member.search.limit.max-concurrency:32}") int maxLimit,
+                         @Value("${member.search.limit.pool-wait-threshold:100ms}") Duration waitThreshold,
+                         @Value("${member.search.limit.adjust-interval:500ms}") Duration adjustInterval) {
+        this.poolWaitMetrics = poolWaitMetrics;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.waitThresholdNanos = waitThreshold.toNanos();
+        this.adjustIntervalNanos = adjustInterval.toNanos();
+        this.limit = new AtomicInteger(maxLimit);
+    }
+
+    public boolean tryAcquire(){
+        adjust();
+        while(true){
+            int current = inFlight.get();
+            if(current >= limit.get()){
+                rejected.increment();
+                return false;
+            }
+            if(inFlight.compareAndSet(current, current + 1)){
+                accepted.increment();
+                return true;
+            }
+        }
+    }
+
+    public void release(){
+        inFlight.decrementAndGet();
+    }
+
+    public void recordTimeout(){
+        timedOut.increment();
+    }
+
+    void adjust(){
+        long now = System.nanoTime();
+        long last = lastAdjusted.get();
+        if(now - last < adjustIntervalNanos || !lastAdjusted.compareAndSet(last, now)){
+            return;
+        }
+        boolean congested = poolWaitMetrics.getRecentWaitNanos() > waitThresholdNanos
+                || poolWaitMetrics.getThreadsAwaitingConnection() > 0;
+        if(congested){
+            limit.updateAndGet(l -> Math.max(minLimit, l / 2));
+        } else {
+            limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+        }
+    }
+
+    public int getLimit(){
+        return limit.get();
+    }
+
+    public Map<String, Object> stats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limit", limit.get());
+        stats.put("inFlight", inFlight.get());
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("timedOut", timedOut.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+//ForestRollupCache 가 같은 인스턴스를 여러 호출자에게 돌려주므로 불변으로 둔다
+@Getter
+@ToString
+@EqualsAndHashCode
+public class ForestStatsDto {
+    private final Long forestId;
+    private final String forestName;
+    private final long treeCount;
+    private final long leafCount;
+
+    @QueryProjection
+    public ForestStatsDto(Long forestId, String forestName, long treeCount, long leafCount) {
+        this.forestId = forestId;
+        this.forestName = forestName;
+        this.treeCount = treeCount;
+        this.leafCount = leafCount;
+    }
+}
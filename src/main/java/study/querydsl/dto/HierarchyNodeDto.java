@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import study.querydsl.entity.test.HierarchyNodeType;
+
+@Data
+@NoArgsConstructor
+public class HierarchyNodeDto {
+    private HierarchyNodeType type;
+    private Long id;
+    private int depth;
+
+    @QueryProjection
+    public HierarchyNodeDto(HierarchyNodeType type, Long id, int depth) {
+        this.type = type;
+        this.id = id;
+        this.depth = depth;
+    }
+}
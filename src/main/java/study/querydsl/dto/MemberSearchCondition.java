@@ -2,12 +2,24 @@ package study.querydsl.dto;
 
 import lombok.Builder;
 import lombok.Data;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.filter.Eq;
+import study.querydsl.filter.Goe;
+import study.querydsl.filter.Loe;
+import study.querydsl.filter.QueryFilter;
 
+//조건 코드는 MemberSearchConditionFilter 로 생성된다. team.name 은 leftJoin(member.team, team) 별칭을 쓴다
 @Data
+@QueryFilter(value = Member.class, joins = Team.class)
 public class MemberSearchCondition {
+    @Eq
     private String username;
+    @Eq("team.name")
     private String teamName;
+    @Goe("age")
     private Integer ageGoe;
+    @Loe("age")
     private Integer ageLoe;
 
     public MemberSearchCondition(){}
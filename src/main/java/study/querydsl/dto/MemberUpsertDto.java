@@ -0,0 +1,18 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class MemberUpsertDto {
+    private String username;
+    private int age;
+    private String teamName;
+
+    public MemberUpsertDto(){}
+
+    public MemberUpsertDto(String username, int age, String teamName) {
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class ScanPartitionReport {
+    private final int partition;
+    private final long fromId;
+    private final long toId;
+    private final long rows;
+    private final int chunks;
+    private final long elapsedMillis;
+    //처리 쪽이 느려서 큐가 비기를 기다린 시간
+    private final long blockedMillis;
+
+    public ScanPartitionReport(int partition, long fromId, long toId, long rows, int chunks,
+                               long elapsedMillis, long blockedMillis) {
+        this.partition = partition;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.rows = rows;
+        this.chunks = chunks;
+        this.elapsedMillis = elapsedMillis;
+        this.blockedMillis = blockedMillis;
+    }
+
+    public double getRowsPerSecond(){
+        return elapsedMillis > 0 ? rows * 1000.0 / elapsedMillis : rows;
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@ToString
+public class ScanReport {
+    private final long rows;
+    private final long elapsedMillis;
+    private final List<ScanPartitionReport> partitions;
+
+    public ScanReport(long rows, long elapsedMillis, List<ScanPartitionReport> partitions) {
+        this.rows = rows;
+        this.elapsedMillis = elapsedMillis;
+        this.partitions = partitions;
+    }
+
+    public double getRowsPerSecond(){
+        return elapsedMillis > 0 ? rows * 1000.0 / elapsedMillis : rows;
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@ToString
+public class TeamTransferResult {
+    private final int moved;
+    private final int attempts;
+    //이동하지 못한 회원. 같은 요청의 다른 팀 이동은 이미 커밋되었을 수 있다
+    private final List<Long> failedMemberIds;
+    private final long elapsedMillis;
+
+    public TeamTransferResult(int moved, int attempts, List<Long> failedMemberIds, long elapsedMillis) {
+        this.moved = moved;
+        this.attempts = attempts;
+        this.failedMemberIds = List.copyOf(failedMemberIds);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public boolean isComplete(){
+        return failedMemberIds.isEmpty();
+    }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class TreeLeafCountDto {
+    private Long forestId;
+    private Long treeId;
+    private String treeName;
+    private long leafCount;
+
+    @QueryProjection
+    public TreeLeafCountDto(Long forestId, Long treeId, String treeName, long leafCount) {
+        this.forestId = forestId;
+        this.treeId = treeId;
+        this.treeName = treeName;
+        this.leafCount = leafCount;
+    }
+}
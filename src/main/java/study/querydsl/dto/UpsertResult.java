@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class UpsertResult {
+    private final int inserted;
+    private final int updated;
+    private final int teamsCreated;
+    private final long elapsedMillis;
+
+    public UpsertResult(int inserted, int updated, int teamsCreated, long elapsedMillis) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.teamsCreated = teamsCreated;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond(){
+        return elapsedMillis == 0 ? inserted + updated : (inserted + updated) * 1000.0 / elapsedMillis;
+    }
+}
@@ -1,13 +1,24 @@
 package study.querydsl.entity;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import study.querydsl.repository.cache.MemberCacheListener;
+import study.querydsl.repository.change.ChangeFeedListener;
+import study.querydsl.repository.memory.InMemoryMemberSearchListener;
+import study.querydsl.repository.shard.PrimaryWriteGuard;
 
 import javax.persistence.*;
 
 @Entity
+@EntityListeners({PrimaryWriteGuard.class, MemberCacheListener.class, InMemoryMemberSearchListener.class, ChangeFeedListener.class})
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_username_lower", columnList = "username_lower"),
+        @Index(name = "idx_member_age", columnList = "age")
+})
 @Getter @Setter
 @ToString(of = {"id", "username", "age"})
 public class Member {
@@ -19,8 +30,19 @@ public class Member {
 
     private String username;
 
+    //대소문자 무시 검색용. lower(username) 조건은 인덱스를 못 타므로 DB 가 계산해 두는 생성 컬럼에 인덱스를 건다.
+    //엔티티에서는 읽기만 하고, 저장하거나 이름을 바꾼 직후의 값은 다시 조회해야 보인다
+    @Setter(AccessLevel.NONE)
+    @Column(name = "username_lower", insertable = false, updatable = false,
+            columnDefinition = "varchar(255) as (lower(username))")
+    private String usernameLower;
+
     private int age;
 
+    //동시 팀 이동에서 갱신 손실을 막는 낙관적 락
+    @Version
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
@@ -37,7 +59,10 @@ public class Member {
     }
 
     public void changeTeam(Team team) {
+        if(this.team != null){
+            this.team.removeMember(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        team.addMember(this);
     }
 }
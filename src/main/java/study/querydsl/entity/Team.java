@@ -1,12 +1,18 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import study.querydsl.repository.cache.MemberCacheListener;
+import study.querydsl.repository.change.ChangeFeedListener;
+import study.querydsl.repository.memory.InMemoryMemberSearchListener;
+import study.querydsl.repository.shard.PrimaryWriteGuard;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners({PrimaryWriteGuard.class, MemberCacheListener.class, InMemoryMemberSearchListener.class, ChangeFeedListener.class})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -26,4 +32,19 @@ public class Team {
     public Team(String name){
         this.name = name;
     }
+
+    //연관관계의 주인은 member.team 이라 members 는 화면용 사본일 뿐이므로 회원 하나 추가하려고 전체를 로딩하지 않는다
+    //로딩 전이면 건드리지 않는다. 나중에 로딩할 때 DB 에서 함께 읽히므로, 같은 영속성 컨텍스트에서는 flush 뒤에 읽어야 보인다
+    void addMember(Member member){
+        if(Hibernate.isInitialized(members)){
+            members.add(member);
+        }
+    }
+
+    //bag 의 remove 는 컬렉션을 로딩하므로 이미 로딩된 경우에만 맞춘다
+    void removeMember(Member member){
+        if(Hibernate.isInitialized(members)){
+            members.remove(member);
+        }
+    }
 }
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import study.querydsl.repository.change.ChangeFeedListener;
+import study.querydsl.repository.hierarchy.ForestHierarchyListener;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,6 +14,7 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
+@EntityListeners({ChangeFeedListener.class, ForestHierarchyListener.class})
 @NoArgsConstructor
 public class Forest {
     @Id
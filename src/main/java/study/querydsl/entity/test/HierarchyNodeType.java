@@ -0,0 +1,11 @@
+package study.querydsl.entity.test;
+
+//계층 순서대로 선언, 인덱스 갱신도 이 순서로 한다
+public enum HierarchyNodeType {
+    FOREST, TREE, LEAF;
+
+    //숲은 부모가 없으므로 null
+    public HierarchyNodeType parent(){
+        return this == FOREST ? null : values()[ordinal() - 1];
+    }
+}
@@ -0,0 +1,51 @@
+package study.querydsl.entity.test;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.*;
+
+//Forest/Tree/Leaf 의 클로저 테이블, 조상-자손 쌍마다 한 행(자기 자신은 depth 0).
+//id 는 엔티티마다 따로 매겨질 수 있으므로 노드는 항상 (type, id) 로 찾는다
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_hierarchy_path_ancestor", columnList = "ancestor_id, ancestor_type, depth"),
+        @Index(name = "idx_hierarchy_path_descendant", columnList = "descendant_id, descendant_type, depth")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"ancestorType", "ancestorId", "descendantType", "descendantId", "depth"})
+public class HierarchyPath {
+
+    @Id
+    @GeneratedValue
+    @Column(name = "hierarchy_path_id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "ancestor_type")
+    private HierarchyNodeType ancestorType;
+
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "descendant_type")
+    private HierarchyNodeType descendantType;
+
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    private int depth;
+
+    public HierarchyPath(HierarchyNodeType ancestorType, Long ancestorId,
+                         HierarchyNodeType descendantType, Long descendantId, int depth) {
+        this.ancestorType = ancestorType;
+        this.ancestorId = ancestorId;
+        this.descendantType = descendantType;
+        this.descendantId = descendantId;
+        this.depth = depth;
+    }
+}
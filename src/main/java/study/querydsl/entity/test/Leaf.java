@@ -4,12 +4,15 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.stereotype.Service;
+import study.querydsl.repository.change.ChangeFeedListener;
+import study.querydsl.repository.hierarchy.ForestHierarchyListener;
 
 import javax.persistence.*;
 
 @Getter
 @Setter
 @Entity
+@EntityListeners({ChangeFeedListener.class, ForestHierarchyListener.class})
 @NoArgsConstructor
 public class Leaf {
     @Id
@@ -3,12 +3,17 @@ package study.querydsl.entity.test;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import study.querydsl.repository.change.ChangeFeedListener;
+import study.querydsl.repository.hierarchy.ForestHierarchyListener;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners({ChangeFeedListener.class, ForestHierarchyListener.class})
 @Getter @Setter
 @NoArgsConstructor
 public class Tree {
@@ -18,6 +23,7 @@ public class Tree {
 
     private String name;
 
+    @Fetch(FetchMode.SUBSELECT)
     @OneToMany(mappedBy = "tree")
     private List<Leaf> leaves = new ArrayList<>();
 
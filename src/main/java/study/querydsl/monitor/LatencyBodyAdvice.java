@@ -0,0 +1,31 @@
+package study.querydsl.monitor;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+//메시지 컨버터가 본문을 쓰기 직전 시각을 남겨 핸들러 시간과 직렬화 시간을 가른다
+@ControllerAdvice
+public class LatencyBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if(request instanceof ServletServerHttpRequest){
+            ((ServletServerHttpRequest) request).getServletRequest()
+                    .setAttribute(LatencyInterceptor.BODY_WRITE, System.nanoTime());
+        }
+        return body;
+    }
+}
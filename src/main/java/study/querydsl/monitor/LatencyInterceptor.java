@@ -0,0 +1,51 @@
+package study.querydsl.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+//엔드포인트별로 전체 / 핸들러 / 리포지토리 / 직렬화 시간을 나눠 기록한다.
+//핸들러 시간은 응답 본문을 쓰기 직전까지(리포지토리 포함), 직렬화는 그 뒤로 요청이 끝날 때까지다.
+//리포지토리 시간은 리포지토리 메서드 안에서 쓴 시간이라 JDBC 외에 트랜잭션 처리, 엔티티 매핑도 들어간다
+@RequiredArgsConstructor
+public class LatencyInterceptor implements HandlerInterceptor {
+
+    private static final String STARTED = LatencyInterceptor.class.getName() + ".STARTED";
+    static final String BODY_WRITE = LatencyInterceptor.class.getName() + ".BODY_WRITE";
+
+    private final LatencyRecorder latencyRecorder;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if(handler instanceof HandlerMethod){
+            RepositoryLatencyInterceptor.resetRepositoryNanos();
+            request.setAttribute(STARTED, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Long started = (Long) request.getAttribute(STARTED);
+        if(started == null){
+            return;
+        }
+        long finished = System.nanoTime();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+
+        latencyRecorder.record(endpoint, finished - started);
+        latencyRecorder.record(endpoint + " [repository]", RepositoryLatencyInterceptor.repositoryNanos());
+        Long bodyWrite = (Long) request.getAttribute(BODY_WRITE);
+        if(bodyWrite != null){
+            latencyRecorder.record(endpoint + " [handler]", bodyWrite - started);
+            latencyRecorder.record(endpoint + " [serialization]", finished - bodyWrite);
+        } else {
+            latencyRecorder.record(endpoint + " [handler]", finished - started);
+        }
+    }
+}
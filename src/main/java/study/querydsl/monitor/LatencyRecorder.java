@@ -0,0 +1,142 @@
+package study.querydsl.monitor;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//이름별 지연 시간 분포. 기록은 HdrHistogram Recorder 로 락 없이 하고,
+//interval 마다 구간 히스토그램을 링에 넣어 최근 windows 만큼을 합쳐서 보여준다 (진행 중인 구간은 포함하지 않는다)
+@Component
+public class LatencyRecorder implements DisposableBean {
+
+    //마이크로초 단위, 1분까지 유효 숫자 2자리. 구간 하나가 수십 KB 안쪽이다
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final boolean enabled;
+    private final Duration interval;
+    private final List<Duration> windows;
+    private final int slots;
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService rotator;
+
+    public LatencyRecorder(@Value("${monitor.latency.enabled:true}") boolean enabled,
+                           @Value("${monitor.latency.interval:10s}") Duration interval,
+                           @Value("${monitor.latency.windows:1m,5m}") List<Duration> windows) {
+        this.enabled = enabled;
+        this.interval = interval;
+        this.windows = windows;
+        Duration longest = windows.stream().max(Duration::compareTo).orElse(interval);
+        this.slots = (int) Math.max(1, (longest.toMillis() + interval.toMillis() - 1) / interval.toMillis());
+        this.rotator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "latency-rotator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if(enabled){
+            rotator.scheduleAtFixedRate(this::rotate, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public void record(String name, long nanos){
+        if(!enabled){
+            return;
+        }
+        Metric metric = metrics.get(name);
+        if(metric == null){
+            metric = metrics.computeIfAbsent(name, n -> new Metric(slots));
+        }
+        metric.record(Math.min(HIGHEST_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos))));
+    }
+
+    void rotate(){
+        metrics.values().forEach(Metric::rotate);
+    }
+
+    public Map<String, Object> snapshot(){
+        Map<String, Object> metricSnapshots = new TreeMap<>();
+        metrics.forEach((name, metric) -> {
+            Map<String, Object> byWindow = new LinkedHashMap<>();
+            for(Duration window : windows){
+                int count = (int) Math.max(1, (window.toMillis() + interval.toMillis() - 1) / interval.toMillis());
+                byWindow.put(window.toString(), percentiles(metric.merge(count)));
+            }
+            byWindow.put("allTimeCount", metric.allTimeCount);
+            metricSnapshots.put(name, byWindow);
+        });
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("enabled", enabled);
+        map.put("interval", interval.toString());
+        map.put("unit", "micros");
+        map.put("metrics", metricSnapshots);
+        return map;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram){
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", histogram.getTotalCount());
+        map.put("p50", histogram.getValueAtPercentile(50));
+        map.put("p90", histogram.getValueAtPercentile(90));
+        map.put("p99", histogram.getValueAtPercentile(99));
+        map.put("p999", histogram.getValueAtPercentile(99.9));
+        map.put("max", histogram.getMaxValue());
+        return map;
+    }
+
+    @Override
+    public void destroy() {
+        rotator.shutdownNow();
+    }
+
+    private static class Metric {
+        private final Recorder recorder = new Recorder(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        //링은 rotate/merge 에서만 만지므로 이 객체로 동기화한다. 기록 경로는 락을 타지 않는다
+        private final Histogram[] ring;
+        private int head;
+        private volatile long allTimeCount;
+
+        Metric(int slots) {
+            this.ring = new Histogram[slots];
+        }
+
+        void record(long micros){
+            recorder.recordValue(micros);
+        }
+
+        synchronized void rotate(){
+            int next = (head + 1) % ring.length;
+            Histogram expired = ring[next];
+            //밀려나는 구간을 다음 기록용으로 재활용
+            ring[next] = expired != null ? recorder.getIntervalHistogram(expired) : recorder.getIntervalHistogram();
+            head = next;
+            allTimeCount += ring[next].getTotalCount();
+        }
+
+        synchronized Histogram merge(int count){
+            Histogram merged = new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+            for(int i = 0; i < Math.min(count, ring.length); i++){
+                Histogram slot = ring[(head - i + ring.length) % ring.length];
+                if(slot != null){
+                    merged.add(slot);
+                }
+            }
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package study.querydsl.monitor;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.Repository;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.startup.FirstRequestInterceptor;
+import study.querydsl.startup.StartupMetrics;
+
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+@Configuration
+@RequiredArgsConstructor
+public class MonitorConfig implements WebMvcConfigurer {
+
+    private final NPlusOneDetector nPlusOneDetector;
+    private final StartupMetrics startupMetrics;
+    private final LatencyRecorder latencyRecorder;
+
+    @Bean
+    HibernatePropertiesCustomizer queryCountInspectorCustomizer(){
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountInspector());
+    }
+
+    @Bean
+    PoolWaitMetrics poolWaitMetrics(){
+        return new PoolWaitMetrics();
+    }
+
+    @Bean
+    static BeanPostProcessor poolWaitMetricsRegistrar(ObjectProvider<PoolWaitMetrics> poolWaitMetrics){
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                //풀은 첫 getConnection 시점에 시작되므로 그 전에 등록
+                if(bean instanceof HikariDataSource){
+                    ((HikariDataSource) bean).setMetricsTrackerFactory(poolWaitMetrics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    static BeanPostProcessor repositoryLatencyRegistrar(Environment environment,
+                                                        ObjectProvider<LatencyRecorder> latencyRecorder){
+        boolean enabled = environment.getProperty("monitor.latency.enabled", Boolean.class, true);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if(!enabled){
+                    return bean;
+                }
+                Class<?> targetClass = AopUtils.getTargetClass(bean);
+                String repositoryName = repositoryNameOf(bean, targetClass);
+                if(repositoryName == null){
+                    return bean;
+                }
+                RepositoryLatencyInterceptor interceptor = new RepositoryLatencyInterceptor(repositoryName, latencyRecorder);
+                //트랜잭션 등으로 이미 프록시면 맨 앞에 끼워서 트랜잭션 시작/커밋 시간까지 리포지토리 시간으로 잡는다
+                if(bean instanceof Advised && !((Advised) bean).isFrozen()){
+                    ((Advised) bean).addAdvice(0, interceptor);
+                    return bean;
+                }
+                if(Modifier.isFinal(targetClass.getModifiers())){
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                //구체 클래스로 주입받는 리포지토리가 있어서 클래스 프록시로 만든다
+                proxyFactory.setProxyTargetClass(!Proxy.isProxyClass(bean.getClass()));
+                proxyFactory.addAdvice(interceptor);
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
+    //스프링 데이터 리포지토리는 인터페이스 이름으로, @Repository 는 클래스 이름으로 부른다
+    private static String repositoryNameOf(Object bean, Class<?> targetClass){
+        if(bean instanceof Repository && bean instanceof Advised){
+            return Arrays.stream(((Advised) bean).getProxiedInterfaces())
+                    .filter(Repository.class::isAssignableFrom)
+                    .filter(type -> !type.getName().startsWith("org.springframework."))
+                    .map(Class::getSimpleName)
+                    .findFirst()
+                    .orElse(targetClass.getSimpleName());
+        }
+        if(AnnotatedElementUtils.hasAnnotation(targetClass, org.springframework.stereotype.Repository.class)){
+            return targetClass.getSimpleName();
+        }
+        return null;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new NPlusOneDetectionInterceptor(nPlusOneDetector));
+        registry.addInterceptor(new FirstRequestInterceptor(startupMetrics));
+        if(latencyRecorder.isEnabled()){
+            registry.addInterceptor(new LatencyInterceptor(latencyRecorder)).excludePathPatterns("/admin/**");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+
+//fail-on-detection 은 본문을 쓰기 전에 확인해야 핸들러 예외로 처리된다
+@ControllerAdvice
+@RequiredArgsConstructor
+public class NPlusOneBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    private final NPlusOneDetector detector;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if(request instanceof ServletServerHttpRequest){
+            HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+            if(servletRequest.getAttribute(NPlusOneDetectionInterceptor.SAMPLED) != null){
+                detector.verify(NPlusOneDetectionInterceptor.labelOf(servletRequest));
+            }
+        }
+        return body;
+    }
+}
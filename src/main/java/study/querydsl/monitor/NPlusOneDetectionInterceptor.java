@@ -0,0 +1,43 @@
+package study.querydsl.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@RequiredArgsConstructor
+public class NPlusOneDetectionInterceptor implements HandlerInterceptor {
+
+    static final String SAMPLED = NPlusOneDetectionInterceptor.class.getName() + ".SAMPLED";
+
+    private final NPlusOneDetector detector;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if(detector.begin()){
+            request.setAttribute(SAMPLED, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    //뷰를 그리기 전이라 아직 응답이 나가지 않았다. @ResponseBody 는 NPlusOneBodyAdvice 에서 본문을 쓰기 전에 확인한다
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        if(modelAndView != null && request.getAttribute(SAMPLED) != null){
+            detector.verify(labelOf(request));
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if(request.getAttribute(SAMPLED) != null){
+            detector.end(labelOf(request));
+        }
+    }
+
+    static String labelOf(HttpServletRequest request){
+        return request.getMethod() + " " + request.getRequestURI();
+    }
+}
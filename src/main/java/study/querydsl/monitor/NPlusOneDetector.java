@@ -0,0 +1,71 @@
+package study.querydsl.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
+@Component
+public class NPlusOneDetector {
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final int threshold;
+    private final boolean failOnDetection;
+
+    public NPlusOneDetector(@Value("${monitor.n-plus-one.enabled:true}") boolean enabled,
+                            @Value("${monitor.n-plus-one.sample-rate:1.0}") double sampleRate,
+                            @Value("${monitor.n-plus-one.threshold:3}") int threshold,
+                            @Value("${monitor.n-plus-one.fail-on-detection:false}") boolean failOnDetection) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.threshold = threshold;
+        this.failOnDetection = failOnDetection;
+    }
+
+    public boolean begin(){
+        if(!enabled || ThreadLocalRandom.current().nextDouble() >= sampleRate){
+            return false;
+        }
+        QueryCounter.start();
+        return true;
+    }
+
+    //응답 본문을 쓰기 전에 불러야 실패가 요청 오류로 전달된다. afterCompletion 에서는 응답이 이미 커밋돼 로그만 남는다.
+    //실패로 끝낸 측정은 멈춰서 end 에서 같은 내용을 다시 남기지 않는다
+    public void verify(String label){
+        QueryCountContext context = QueryCounter.current();
+        if(!failOnDetection || context == null){
+            return;
+        }
+        List<RepeatedStatement> repeated = context.getRepeatedSelects(threshold);
+        if(repeated.isEmpty()){
+            return;
+        }
+        QueryCounter.stop();
+        report(label, context, repeated);
+        throw new IllegalStateException("N+1 detected in " + label + ": " + repeated);
+    }
+
+    public void end(String label){
+        QueryCountContext context = QueryCounter.stop();
+        if(context == null){
+            return;
+        }
+        List<RepeatedStatement> repeated = context.getRepeatedSelects(threshold);
+        if(!repeated.isEmpty()){
+            report(label, context, repeated);
+        }
+    }
+
+    private void report(String label, QueryCountContext context, List<RepeatedStatement> repeated){
+        for(RepeatedStatement statement : repeated){
+            log.warn("N+1 의심 [{}] 동일 쿼리 {}회 (전체 {}회): {}\n\tat {}",
+                    label, statement.getCount(), context.getCount(), statement.getSql(),
+                    String.join("\n\tat ", statement.getCallStack()));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package study.querydsl.monitor;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//커넥션 풀에서 커넥션을 얻기까지 기다린 시간을 기록
+public class PoolWaitMetrics implements MetricsTrackerFactory {
+
+    private static final double EWMA_ALPHA = 0.1;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong recentWaitNanos = new AtomicLong();
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    void record(long waitNanos){
+        acquired.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        recentWaitNanos.getAndUpdate(prev -> (long) (prev + EWMA_ALPHA * (waitNanos - prev)));
+    }
+
+    public long getAcquiredCount(){
+        return acquired.sum();
+    }
+
+    public long getTotalWaitNanos(){
+        return totalWaitNanos.sum();
+    }
+
+    public long getMaxWaitNanos(){
+        return maxWaitNanos.get();
+    }
+
+    //최대값은 누적값이라 빼서 구간 값을 낼 수 없으므로, 구간을 나눠 보려면 시작할 때 비운다
+    public long resetMaxWaitNanos(){
+        return maxWaitNanos.getAndSet(0);
+    }
+
+    //최근 대기 시간의 지수 이동 평균
+    public long getRecentWaitNanos(){
+        return recentWaitNanos.get();
+    }
+
+    public int getThreadsAwaitingConnection(){
+        PoolStats stats = poolStats;
+        return stats != null ? stats.getPendingThreads() : 0;
+    }
+
+    public Map<String, Object> snapshot(){
+        Map<String, Object> map = new LinkedHashMap<>();
+        long count = getAcquiredCount();
+        map.put("acquiredCount", count);
+        map.put("timeoutCount", timeouts.sum());
+        map.put("avgWaitMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(getTotalWaitNanos() / count));
+        map.put("recentWaitMicros", TimeUnit.NANOSECONDS.toMicros(getRecentWaitNanos()));
+        map.put("maxWaitMicros", TimeUnit.NANOSECONDS.toMicros(getMaxWaitNanos()));
+        map.put("pendingThreads", getThreadsAwaitingConnection());
+        PoolStats stats = poolStats;
+        if(stats != null){
+            map.put("activeConnections", stats.getActiveConnections());
+            map.put("totalConnections", stats.getTotalConnections());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.monitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class QueryCountContext {
+
+    private static final String APP_PACKAGE = "study.querydsl.";
+    private static final Set<String> INTERNAL_CLASSES = Set.of(
+            QueryCountContext.class.getName(), QueryCounter.class.getName(), QueryCountInspector.class.getName());
+
+    private final Map<String, StatementStats> statements = new LinkedHashMap<>();
+    private int count;
+
+    void record(String sql){
+        count++;
+        StatementStats stats = statements.computeIfAbsent(sql, StatementStats::new);
+        stats.count++;
+        //같은 select 가 두 번째로 나가는 시점의 호출 위치가 N+1 을 일으킨 코드
+        if(stats.count == 2 && isSelect(sql)){
+            stats.callStack = captureCallStack();
+        }
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    public int getCount(String sqlPrefix){
+        String prefix = sqlPrefix.toLowerCase();
+        return statements.values().stream()
+                .filter(s -> s.sql.trim().toLowerCase().startsWith(prefix))
+                .mapToInt(s -> s.count)
+                .sum();
+    }
+
+    public List<String> getStatements(){
+        return new ArrayList<>(statements.keySet());
+    }
+
+    public List<RepeatedStatement> getRepeatedSelects(int threshold){
+        List<RepeatedStatement> result = new ArrayList<>();
+        for(StatementStats stats : statements.values()){
+            if(stats.count >= threshold && isSelect(stats.sql)){
+                result.add(new RepeatedStatement(stats.sql, stats.count, stats.callStack));
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSelect(String sql){
+        return sql.trim().regionMatches(true, 0, "select", 0, 6);
+    }
+
+    private static List<String> captureCallStack(){
+        return Arrays.stream(new Throwable().getStackTrace())
+                .filter(e -> e.getClassName().startsWith(APP_PACKAGE))
+                .filter(e -> !INTERNAL_CLASSES.contains(e.getClassName()))
+                .map(StackTraceElement::toString)
+                .collect(Collectors.toList());
+    }
+
+    private static class StatementStats {
+        private final String sql;
+        private int count;
+        private List<String> callStack = List.of();
+
+        StatementStats(String sql){
+            this.sql = sql;
+        }
+    }
+}
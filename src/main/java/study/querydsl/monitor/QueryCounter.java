@@ -0,0 +1,31 @@
+package study.querydsl.monitor;
+
+public final class QueryCounter {
+
+    private static final ThreadLocal<QueryCountContext> CONTEXT = new ThreadLocal<>();
+
+    private QueryCounter(){}
+
+    public static QueryCountContext start(){
+        QueryCountContext context = new QueryCountContext();
+        CONTEXT.set(context);
+        return context;
+    }
+
+    public static QueryCountContext current(){
+        return CONTEXT.get();
+    }
+
+    public static QueryCountContext stop(){
+        QueryCountContext context = CONTEXT.get();
+        CONTEXT.remove();
+        return context;
+    }
+
+    static void record(String sql){
+        QueryCountContext context = CONTEXT.get();
+        if(context != null){
+            context.record(sql);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@ToString
+public class RepeatedStatement {
+    private final String sql;
+    private final int count;
+    private final List<String> callStack;
+
+    public RepeatedStatement(String sql, int count, List<String> callStack) {
+        this.sql = sql;
+        this.count = count;
+        this.callStack = callStack;
+    }
+}
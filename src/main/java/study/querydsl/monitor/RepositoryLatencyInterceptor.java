@@ -0,0 +1,57 @@
+package study.querydsl.monitor;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//리포지토리 호출 시간을 "리포지토리.메서드" 이름으로 기록한다. 리포지토리가 다른 리포지토리를 부르면 바깥 호출만 센다.
+//같은 스레드에서 쓴 시간은 요청 단위로도 모아서 LatencyInterceptor 가 엔드포인트의 [repository] 시간으로 가져간다
+public class RepositoryLatencyInterceptor implements MethodInterceptor {
+
+    //[0] 중첩 깊이, [1] 누적 나노초
+    private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final String repositoryName;
+    private final ObjectProvider<LatencyRecorder> latencyRecorder;
+    private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+    public RepositoryLatencyInterceptor(String repositoryName, ObjectProvider<LatencyRecorder> latencyRecorder) {
+        this.repositoryName = repositoryName;
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long[] state = CURRENT.get();
+        if(state[0] > 0 || ReflectionUtils.isObjectMethod(invocation.getMethod())){
+            return invocation.proceed();
+        }
+        state[0]++;
+        long started = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            state[0]--;
+            state[1] += elapsed;
+            latencyRecorder.getObject().record(nameOf(invocation.getMethod()), elapsed);
+        }
+    }
+
+    private String nameOf(Method method){
+        return names.computeIfAbsent(method, m -> repositoryName + "." + m.getName());
+    }
+
+    static void resetRepositoryNanos(){
+        CURRENT.get()[1] = 0;
+    }
+
+    static long repositoryNanos(){
+        return CURRENT.get()[1];
+    }
+}
@@ -0,0 +1,16 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.ForestStatsDto;
+import study.querydsl.dto.TreeLeafCountDto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface ForestRepositoryCustom {
+    List<ForestStatsDto> forestStats();
+    Optional<ForestStatsDto> forestStats(Long forestId);
+    List<TreeLeafCountDto> topTreesByLeafCount(Long forestId, int limit);
+    Map<Long, List<TreeLeafCountDto>> topTreesByLeafCount(Collection<Long> forestIds, int limit);
+}
@@ -0,0 +1,83 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.ForestStatsDto;
+import study.querydsl.dto.QForestStatsDto;
+import study.querydsl.dto.QTreeLeafCountDto;
+import study.querydsl.dto.TreeLeafCountDto;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static study.querydsl.entity.test.QForest.forest;
+import static study.querydsl.entity.test.QLeaf.leaf;
+import static study.querydsl.entity.test.QTree.tree;
+
+//Forest -> Tree -> Leaf 그래프를 로딩하지 않고 집계는 SQL 의 group by 로 계산
+@Repository
+@RequiredArgsConstructor
+public class ForestRepositoryImpl implements ForestRepositoryCustom {
+
+    private static final int MAX_FORESTS_PER_TOP_QUERY = 100;
+
+    private final JPAQueryFactory queryFactory;
+
+    @Override
+    public List<ForestStatsDto> forestStats() {
+        return forestStatsQuery(null).fetch();
+    }
+
+    @Override
+    public Optional<ForestStatsDto> forestStats(Long forestId) {
+        return Optional.ofNullable(forestStatsQuery(forest.id.eq(forestId)).fetchOne());
+    }
+
+    @Override
+    public List<TreeLeafCountDto> topTreesByLeafCount(Long forestId, int limit) {
+        return treeLeafCountQuery(tree.forest.id.eq(forestId))
+                .limit(limit)
+                .fetch();
+    }
+
+    @Override
+    public Map<Long, List<TreeLeafCountDto>> topTreesByLeafCount(Collection<Long> forestIds, int limit) {
+        //숲마다 쿼리 하나씩이므로 한 번에 받는 숲 수를 제한한다
+        if(forestIds.size() > MAX_FORESTS_PER_TOP_QUERY){
+            throw new IllegalArgumentException("too many forests: " + forestIds.size() + " (max " + MAX_FORESTS_PER_TOP_QUERY + ")");
+        }
+        //JPQL 에는 윈도우 함수가 없어 한 번에 받으면 숲의 모든 트리를 읽게 되므로, 숲마다 limit 을 걸어 SQL 에서 자른다
+        Map<Long, List<TreeLeafCountDto>> result = new LinkedHashMap<>();
+        for(Long forestId : forestIds){
+            result.put(forestId, topTreesByLeafCount(forestId, limit));
+        }
+        return result;
+    }
+
+    private JPAQuery<ForestStatsDto> forestStatsQuery(BooleanExpression condition) {
+        return queryFactory
+                .select(new QForestStatsDto(forest.id, forest.name, tree.countDistinct(), leaf.count()))
+                .from(forest)
+                .leftJoin(forest.trees, tree)
+                .leftJoin(tree.leaves, leaf)
+                .where(condition)
+                .groupBy(forest.id, forest.name)
+                .orderBy(forest.id.asc());
+    }
+
+    private JPAQuery<TreeLeafCountDto> treeLeafCountQuery(BooleanExpression condition) {
+        return queryFactory
+                .select(new QTreeLeafCountDto(tree.forest.id, tree.id, tree.name, leaf.count()))
+                .from(tree)
+                .leftJoin(tree.leaves, leaf)
+                .where(condition)
+                .groupBy(tree.forest.id, tree.id, tree.name)
+                .orderBy(tree.forest.id.asc(), leaf.count().desc(), tree.id.asc());
+    }
+}
@@ -0,0 +1,222 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberUpsertDto;
+import study.querydsl.dto.UpsertResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.cache.MemberCache;
+import study.querydsl.repository.change.ChangeFeed;
+import study.querydsl.repository.memory.InMemoryMemberSearch;
+import study.querydsl.repository.shard.PrimaryWriteGuard;
+import study.querydsl.repository.support.StringCollation;
+import study.querydsl.repository.support.TransactionState;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class MemberBulkRepository {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int LOCK_STRIPES = 256;
+
+    private static final String UPDATE_SQL = "update member set age = ?, team_id = ?, version = version + 1 where username = ?";
+    private static final String INSERT_SQL = "insert into member (member_id, username, age, team_id, version) values (?, ?, ?, ?, 0)";
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final MemberCache memberCache;
+    private final ChangeFeed changeFeed;
+    private final ObjectProvider<InMemoryMemberSearch> inMemorySearch;
+    private final PrimaryWriteGuard primaryWriteGuard;
+    private final StringCollation collation;
+
+    //같은 신규 username 을 동시에 upsert 하면 양쪽 다 없다고 보고 각자 insert 해서 중복 행이 생긴다.
+    //username 은 유니크가 아니라서 (벌크로 여러 회원을 같은 이름으로 바꿀 수 있다) DB 가 막아 주지 않으므로,
+    //이 프로세스 안에서는 username 단위 락을 커밋까지 잡아 직렬화한다. 여러 인스턴스 사이의 경합은 막지 못한다
+    private final ReentrantLock[] usernameLocks = newLocks();
+
+    //username 이 같은 기존 행은 모두 갱신한다. updated 는 실제로 바뀐 행 수다.
+    //JDBC 로 쓰므로 영속성 컨텍스트에 있던 같은 username 의 Member 는 준영속이 된다. 다른 엔티티는 그대로 둔다
+    @Transactional
+    public UpsertResult upsert(List<MemberUpsertDto> records) {
+        validate(records);
+        primaryWriteGuard.check();
+        long start = System.currentTimeMillis();
+        //JDBC 로 직접 쓰기 전에 대기 중인 변경을 반영
+        em.flush();
+
+        //DB 가 같은 username 으로 보는 레코드는 마지막 것만 쓴다
+        Map<String, MemberUpsertDto> byUsername = new LinkedHashMap<>();
+        records.forEach(r -> byUsername.put(collation.keyOf(r.getUsername()), r));
+        lockUntilCompletion(byUsername.keySet());
+
+        Map<String, Long> teamIds = new HashMap<>();
+        int teamsCreated = resolveTeams(byUsername.values(), teamIds);
+
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        IdentifierGenerator idGenerator = session.getFactory()
+                .getMetamodel().entityPersister(Member.class).getIdentifierGenerator();
+
+        int inserted = 0;
+        int updated = 0;
+        List<MemberUpsertDto> all = new ArrayList<>(byUsername.values());
+        for(int from = 0; from < all.size(); from += CHUNK_SIZE){
+            List<MemberUpsertDto> chunk = all.subList(from, Math.min(from + CHUNK_SIZE, all.size()));
+            //username 은 유니크가 아니므로 같은 이름의 행이 여러 개 올 수 있다
+            List<String> matched = queryFactory
+                    .select(member.username)
+                    .from(member)
+                    .where(member.username.in(chunk.stream().map(MemberUpsertDto::getUsername).collect(Collectors.toList())))
+                    .fetch();
+            Set<String> existing = matched.stream().map(collation::keyOf).collect(Collectors.toSet());
+
+            List<Object[]> updates = new ArrayList<>();
+            List<Object[]> inserts = new ArrayList<>();
+            for(MemberUpsertDto record : chunk){
+                Long teamId = teamIds.get(record.getTeamName());
+                if(existing.contains(collation.keyOf(record.getUsername()))){
+                    updates.add(new Object[]{record.getAge(), teamId, record.getUsername()});
+                } else {
+                    Long id = (Long) idGenerator.generate(session, null);
+                    inserts.add(new Object[]{id, record.getUsername(), record.getAge(), teamId});
+                }
+            }
+            updated += updatedRows(jdbcTemplate.batchUpdate(UPDATE_SQL, updates), matched.size());
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            inserted += inserts.size();
+        }
+
+        //JDBC 로 바뀐 행이 영속성 컨텍스트와 캐시에 남지 않도록 정리
+        detachMembers(session, byUsername.keySet());
+        memberCache.invalidateAll();
+        inMemorySearch.ifAvailable(search -> TransactionState.afterCommit(search::reloadAsync));
+        //JDBC 로 쓴 변경은 ChangePublishingQueryFactory 를 지나지 않으므로 직접 알린다
+        changeFeed.bulkChanged(Member.class);
+
+        UpsertResult result = new UpsertResult(inserted, updated, teamsCreated, System.currentTimeMillis() - start);
+        log.info("member upsert: {} ({} rows/s)", result, String.format("%.1f", result.getRowsPerSecond()));
+        return result;
+    }
+
+    private static void validate(List<MemberUpsertDto> records) {
+        if(records == null){
+            throw new IllegalArgumentException("records must not be null");
+        }
+        for(int i = 0; i < records.size(); i++){
+            MemberUpsertDto record = records.get(i);
+            if(record == null || !StringUtils.hasText(record.getUsername())){
+                throw new IllegalArgumentException("username is required: records[" + i + "]");
+            }
+        }
+    }
+
+    //드라이버가 문장별 행 수를 주지 않으면(SUCCESS_NO_INFO) 갱신 전에 찾은 행 수로 대신한다
+    private static int updatedRows(int[] counts, int matched) {
+        int sum = 0;
+        for(int count : counts){
+            if(count < 0){
+                return matched;
+            }
+            sum += count;
+        }
+        return sum;
+    }
+
+    private void detachMembers(SessionImplementor session, Set<String> usernameKeys) {
+        for(Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()){
+            Object entity = entry.getKey();
+            if(entity instanceof Member && usernameKeys.contains(collation.keyOf(((Member) entity).getUsername()))){
+                em.detach(entity);
+            }
+        }
+    }
+
+    //락은 항상 같은 순서로 잡아서 서로 다른 upsert 끼리 교착되지 않게 한다
+    private void lockUntilCompletion(Set<String> usernames) {
+        int[] stripes = usernames.stream()
+                .mapToInt(username -> Math.floorMod(username.hashCode(), LOCK_STRIPES))
+                .distinct()
+                .sorted()
+                .toArray();
+        for(int stripe : stripes){
+            usernameLocks[stripe].lock();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for(int i = stripes.length - 1; i >= 0; i--){
+                    usernameLocks[stripes[i]].unlock();
+                }
+            }
+        });
+    }
+
+    private static ReentrantLock[] newLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+        for(int i = 0; i < locks.length; i++){
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private int resolveTeams(Iterable<MemberUpsertDto> records, Map<String, Long> teamIds) {
+        Set<String> names = new HashSet<>();
+        records.forEach(r -> {
+            if(r.getTeamName() != null){
+                names.add(r.getTeamName());
+            }
+        });
+        if(names.isEmpty()){
+            return 0;
+        }
+        List<Tuple> found = queryFactory
+                .select(team.name, team.id.min())
+                .from(team)
+                .where(team.name.in(names))
+                .groupBy(team.name)
+                .fetch();
+        found.forEach(t -> teamIds.put(t.get(team.name), t.get(team.id.min())));
+
+        int created = 0;
+        for(String name : names){
+            if(!teamIds.containsKey(name)){
+                Team newTeam = new Team(name);
+                em.persist(newTeam);
+                teamIds.put(name, newTeam.getId());
+                created++;
+            }
+        }
+        em.flush();
+        return created;
+    }
+
+}
@@ -0,0 +1,12 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.List;
+import java.util.Optional;
+
+//캐시를 거치는 조회는 엔티티 대신 스냅샷 DTO 를 돌려준다. findById/findByUsername 은 JPA 그대로 둔다
+public interface MemberCacheRepository {
+    Optional<MemberTeamDto> findSnapshotById(Long id);
+    List<MemberTeamDto> findSnapshotsByUsername(String username);
+}
@@ -0,0 +1,43 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.cache.MemberCache;
+
+import java.util.List;
+import java.util.Optional;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@RequiredArgsConstructor
+public class MemberCacheRepositoryImpl implements MemberCacheRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberCache memberCache;
+
+    @Override
+    public Optional<MemberTeamDto> findSnapshotById(Long id) {
+        return memberCache.getById(id, key -> Optional.ofNullable(snapshotQuery()
+                .where(member.id.eq(key))
+                .fetchOne()));
+    }
+
+    @Override
+    public List<MemberTeamDto> findSnapshotsByUsername(String username) {
+        return memberCache.getByUsername(username, () -> snapshotQuery()
+                .where(member.username.eq(username))
+                .fetch());
+    }
+
+    private JPAQuery<MemberTeamDto> snapshotQuery(){
+        return queryFactory
+                .select(Projections.constructor(MemberTeamDto.class,
+                        member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team);
+    }
+}
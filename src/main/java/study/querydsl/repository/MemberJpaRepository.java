@@ -6,13 +6,17 @@ import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSearchConditionFilter;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.repository.shard.ShardedMemberSearchExecutor;
+import study.querydsl.repository.support.QueryTimeouts;
 
 import javax.persistence.EntityManager;
 import java.util.List;
@@ -26,6 +30,7 @@ import static study.querydsl.entity.QTeam.*;
 public class MemberJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final ObjectProvider<ShardedMemberSearchExecutor> shardedSearch;
 
     public void save(Member member){
         em.persist(member);
@@ -87,7 +92,21 @@ public class MemberJpaRepository {
     }
 
     public List<MemberTeamDto> search(MemberSearchCondition condition){
-        return queryFactory
+        //샤딩을 켜면 회원은 샤드에만 있으므로 /v2, /v3 와 같은 경로로 모은다
+        ShardedMemberSearchExecutor sharded = shardedSearch.getIfAvailable();
+        if(sharded != null){
+            Long deadline = QueryTimeouts.deadline();
+            return sharded.search(factory -> QueryTimeouts.apply(factory
+                    .select(Projections.constructor(
+                            MemberTeamDto.class,
+                            member.id.as("memberId"), member.username, member.age,
+                            team.id.as("teamId"), team.name.as("teamName")
+                    ))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(MemberSearchConditionFilter.of(condition)), deadline));
+        }
+        return QueryTimeouts.apply(queryFactory
                 .select(Projections.constructor(
                         MemberTeamDto.class,
                         member.id.as("memberId"), member.username, member.age,
@@ -95,10 +114,7 @@ public class MemberJpaRepository {
                 ))
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                .where(MemberSearchConditionFilter.of(condition)))
                 .fetch();
     }
 
@@ -106,33 +122,11 @@ public class MemberJpaRepository {
         return queryFactory
                 .selectFrom(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                .where(MemberSearchConditionFilter.of(condition))
                 .fetch();
     }
 
     private BooleanExpression ageBetween(int ageLoe, int ageGoe){
-        return ageGoe(ageGoe).and(ageLoe(ageLoe));
-    }
-
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username):null;
+        return MemberSearchConditionFilter.ageGoe(ageGoe).and(MemberSearchConditionFilter.ageLoe(ageLoe));
     }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName):null;
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
-    }
-
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
-    }
-
-
-
 }
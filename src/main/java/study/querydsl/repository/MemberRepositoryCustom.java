@@ -4,11 +4,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
 
 import java.util.List;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
+    List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    List<Team> loadMembersForTeams(List<Team> teams);
+    long bulkAgePlus(int age);
+    List<Member> findOlderThanAverage();
+    List<Member> findOlderThanTeamAverage();
+    List<Member> findInTeamsWithMemberOlderThan(int age);
+    List<Member> findByUsernameIgnoreCase(String username);
 }
@@ -1,22 +1,52 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.Projections;
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSearchConditionFilter;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.cache.MemberCache;
+import study.querydsl.repository.cache.TeamNameDictionary;
+import study.querydsl.repository.memory.InMemoryMemberSearch;
+import study.querydsl.repository.shard.PrimaryWriteGuard;
+import study.querydsl.repository.shard.ShardedMemberSearchExecutor;
+import study.querydsl.repository.sql.SqlMemberSearch;
+import study.querydsl.repository.support.QueryTimeouts;
+import study.querydsl.repository.support.SingleFlight;
+import study.querydsl.repository.support.SubqueryRewriter;
+import study.querydsl.repository.support.TransactionState;
 
+import javax.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
@@ -25,40 +55,139 @@ import static study.querydsl.entity.QTeam.team;
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
+    //한 쿼리에서 처리할 검색 조건 수. 조건마다 select 절에 표시 컬럼이 하나씩 붙는다
+    private static final int BATCH_CONDITIONS = 50;
+
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberCache memberCache;
+    private final ObjectProvider<ShardedMemberSearchExecutor> shardedSearch;
+    private final ObjectProvider<InMemoryMemberSearch> inMemorySearch;
+    private final ObjectProvider<SqlMemberSearch> sqlSearch;
+    private final SubqueryRewriter subqueryRewriter;
+    private final TeamNameDictionary teamNames;
+    private final SingleFlight singleFlight;
+    private final PrimaryWriteGuard primaryWriteGuard;
+
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(Projections.constructor(
-                        MemberTeamDto.class,
-                        member.id.as("memberId"), member.username, member.age,
-                        team.id.as("teamId"), team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        InMemoryMemberSearch inMemory = inMemorySearch.getIfAvailable();
+        if(inMemory != null){
+            Optional<List<MemberTeamDto>> result = inMemory.search(condition);
+            if(result.isPresent()){
+                return result.get();
+            }
+        }
+        ShardedMemberSearchExecutor sharded = shardedSearch.getIfAvailable();
+        if(sharded != null){
+            //샤드 쿼리는 다른 스레드에서 만들어지므로 마감 시각을 미리 꺼내 둔다
+            Long deadline = QueryTimeouts.deadline();
+            return sharded.search(factory -> QueryTimeouts.apply(searchQuery(factory, condition), deadline));
+        }
+        SqlMemberSearch sql = sqlSearch.getIfAvailable();
+        if(sql != null){
+            return sql.search(condition);
+        }
+        return QueryTimeouts.apply(localSearchQuery(condition)).fetch();
+    }
+
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+        //메모리 검색과 샤드 검색은 조건별로 실행해도 이 DB 로의 왕복이 늘지 않는다
+        if(inMemorySearch.getIfAvailable() != null || shardedSearch.getIfAvailable() != null){
+            return conditions.stream().map(this::search).collect(Collectors.toList());
+        }
+
+        boolean dictionary = teamNames.isUsable();
+        MemberSearchBatcher batcher = dictionary
+                ? new MemberSearchBatcher(teamNames.filters())
+                : new MemberSearchBatcher(MemberSearchConditionFilter.DEFAULTS);
+        List<List<MemberTeamDto>> result = new ArrayList<>();
+        for(int i = 0; i < conditions.size(); i += BATCH_CONDITIONS){
+            result.addAll(searchBatchChunk(conditions.subList(i, Math.min(i + BATCH_CONDITIONS, conditions.size())),
+                    batcher, dictionary));
+        }
+        return result;
+    }
+
+    //합친 조건으로 한 번 조회하면서, 행이 어느 조건에 맞는지는 조건마다 case 컬럼으로 DB 가 표시한다.
+    //자바에서 다시 비교하면 DB 콜레이션(MySQL 은 대소문자와 뒤 공백을 무시)과 결과가 달라진다
+    private List<List<MemberTeamDto>> searchBatchChunk(List<MemberSearchCondition> conditions,
+                                                       MemberSearchBatcher batcher, boolean dictionary) {
+        List<MemberSearchCondition> distinct = new ArrayList<>(new LinkedHashSet<>(conditions));
+        List<Predicate> predicates = batcher.coalesce(distinct);
+        //모든 조건이 아무 행에도 맞을 수 없으면(뒤집힌 나이 구간 등) 조회하지 않는다.
+        //where 를 빼는 것은 조건 없는 검색이 섞인 경우(null)뿐이다
+        if(predicates != null && predicates.isEmpty()){
+            return conditions.stream()
+                    .map(condition -> new ArrayList<MemberTeamDto>())
+                    .collect(Collectors.toList());
+        }
+        Expression<MemberTeamDto> row = dictionary ? teamNames.projection() : Projections.constructor(
+                MemberTeamDto.class,
+                member.id.as("memberId"), member.username, member.age,
+                team.id.as("teamId"), team.name.as("teamName"));
+
+        List<Expression<?>> select = new ArrayList<>();
+        select.add(row);
+        List<Expression<? extends Number>> tags = new ArrayList<>();
+        for(MemberSearchCondition condition : distinct){
+            Predicate predicate = batcher.predicateOf(condition);
+            //조건이 없는 검색은 모든 행에 맞는다
+            NumberExpression<Integer> tag = predicate == null ? null : new CaseBuilder()
+                    .when(predicate).then(Expressions.numberTemplate(Integer.class, "1"))
+                    .otherwise(Expressions.numberTemplate(Integer.class, "0"));
+            tags.add(tag);
+            if(tag != null){
+                select.add(tag);
+            }
+        }
+
+        JPAQuery<Tuple> query = queryFactory
+                .select(select.toArray(new Expression<?>[0]))
+                .from(member);
+        if(!dictionary){
+            query.leftJoin(member.team, team);
+        }
+        if(predicates != null){
+            query.where(ExpressionUtils.anyOf(predicates));
+        }
+
+        Map<MemberSearchCondition, List<MemberTeamDto>> rows = new HashMap<>();
+        distinct.forEach(condition -> rows.put(condition, new ArrayList<>()));
+        for(Tuple tuple : QueryTimeouts.apply(query.orderBy(member.id.asc())).fetch()){
+            MemberTeamDto dto = tuple.get(row);
+            for(int i = 0; i < distinct.size(); i++){
+                Expression<? extends Number> tag = tags.get(i);
+                if(tag == null || tuple.get(tag).intValue() == 1){
+                    rows.get(distinct.get(i)).add(dto);
+                }
+            }
+        }
+        return conditions.stream()
+                .map(condition -> new ArrayList<>(rows.get(condition)))
+                .collect(Collectors.toList());
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(Projections.constructor(
-                        MemberTeamDto.class,
-                        member.id.as("memberId"), member.username, member.age,
-                        team.id.as("teamId"), team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+        //샤딩을 켜면 회원은 샤드에만 있으므로 모든 검색이 샤드를 거친다
+        ShardedMemberSearchExecutor sharded = shardedSearch.getIfAvailable();
+        if(sharded != null){
+            Long deadline = QueryTimeouts.deadline();
+            return sharded.searchPage(
+                    factory -> QueryTimeouts.apply(searchQuery(factory, condition), deadline),
+                    factory -> QueryTimeouts.apply(countQuery(factory, condition), deadline),
+                    pageable);
+        }
+        SqlMemberSearch sql = sqlSearch.getIfAvailable();
+        if(sql != null){
+            return sql.searchPage(condition, pageable);
+        }
+        QueryResults<MemberTeamDto> results = QueryTimeouts.apply(localSearchQuery(condition)
+                .orderBy(MemberSorts.POLICY.toOrderSpecifiers(pageable.getSort()))
                 .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .limit(pageable.getPageSize()))
                 .fetchResults();
 
         List<MemberTeamDto> content = results.getResults();
@@ -69,49 +198,154 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(Projections.constructor(
-                        MemberTeamDto.class,
-                        member.id.as("memberId"), member.username, member.age,
-                        team.id.as("teamId"), team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+        //동시에 들어온 같은 조건, 같은 페이지 요청은 한 번만 조회
+        return singleFlight.execute(List.of("searchPageComplex", condition.getClass(), condition, pageable),
+                () -> doSearchPageComplex(condition, pageable));
+    }
+
+    private Page<MemberTeamDto> doSearchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        ShardedMemberSearchExecutor sharded = shardedSearch.getIfAvailable();
+        if(sharded != null){
+            Long deadline = QueryTimeouts.deadline();
+            return sharded.searchPage(
+                    factory -> QueryTimeouts.apply(searchQuery(factory, condition), deadline),
+                    factory -> QueryTimeouts.apply(countQuery(factory, condition), deadline),
+                    pageable);
+        }
+        SqlMemberSearch sql = sqlSearch.getIfAvailable();
+        if(sql != null){
+            return sql.searchPage(condition, pageable);
+        }
+
+        List<MemberTeamDto> content = QueryTimeouts.apply(localSearchQuery(condition))
+                .orderBy(MemberSorts.POLICY.toOrderSpecifiers(pageable.getSort()))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
 
-        JPAQuery<Member> countQuery = queryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
+        //컨텐츠 조회 후 남은 시간으로 카운트 쿼리 타임아웃을 다시 잡는다
+        JPAQuery<Member> countQuery = QueryTimeouts.apply(localCountQuery(condition));
 
         return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
         //return new PageImpl<>(content, pageable, total);
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username):null;
+    @Override
+    public List<Team> loadMembersForTeams(List<Team> teams) {
+        if(teams.isEmpty()){
+            return teams;
+        }
+        //팀 목록의 members 컬렉션을 IN 쿼리 한 번으로 초기화
+        return queryFactory
+                .selectFrom(team).distinct()
+                .leftJoin(team.members, member).fetchJoin()
+                .where(team.in(teams))
+                .fetch();
+    }
+
+    @Override
+    @Transactional
+    public long bulkAgePlus(int age) {
+        primaryWriteGuard.check();
+        em.flush();
+        long count = queryFactory
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .set(member.version, member.version.add(1))
+                .where(member.age.goe(age))
+                .execute();
+        //벌크 연산은 영속성 컨텍스트와 엔티티 리스너를 거치지 않으므로 직접 초기화
+        em.clear();
+        memberCache.invalidateAll();
+        inMemorySearch.ifAvailable(search -> TransactionState.afterCommit(search::reloadAsync));
+        return count;
+    }
+
+    @Override
+    public List<Member> findOlderThanAverage() {
+        QMember memberSub = new QMember("memberSub");
+        Double avgAge = subqueryRewriter.precompute(
+                JPAExpressions.select(memberSub.age.avg()).from(memberSub));
+        if(avgAge == null){
+            return List.of();
+        }
+        return queryFactory
+                .selectFrom(member)
+                .where(member.age.gt(avgAge))
+                .fetch();
+    }
+
+    @Override
+    public List<Member> findOlderThanTeamAverage() {
+        //JPQL 은 group by 결과(파생 테이블)와 조인할 수 없어서 상관 서브쿼리로 둔다.
+        //팀마다 조건을 펼치면 팀 수만큼 OR 와 파라미터가 늘어나므로, 서브쿼리는 team_id 인덱스로 팀 하나씩만 읽게 한다
+        QMember memberSub = new QMember("memberSub");
+        return queryFactory
+                .selectFrom(member)
+                .where(member.age.gt(JPAExpressions
+                        .select(memberSub.age.avg())
+                        .from(memberSub)
+                        .where(memberSub.team.eq(member.team))))
+                .fetch();
+    }
+
+    @Override
+    public List<Member> findInTeamsWithMemberOlderThan(int age) {
+        QMember memberSub = new QMember("memberSub");
+        return queryFactory
+                .selectFrom(member)
+                .where(subqueryRewriter.semiJoin(member.team.id,
+                        JPAExpressions.select(memberSub.team.id).from(memberSub).where(memberSub.age.gt(age))))
+                .fetch();
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName):null;
+    @Override
+    public List<Member> findByUsernameIgnoreCase(String username) {
+        //lower(username) = ? 대신 생성 컬럼 인덱스로 찾는다. 소문자 변환 규칙은 DB 의 lower 와 맞춘다
+        return queryFactory
+                .selectFrom(member)
+                .where(member.usernameLower.eq(username.toLowerCase(Locale.ROOT)))
+                .fetch();
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    //사전을 쓸 수 있으면 team 조인 없이 member 컬럼과 team_id 만 조회
+    private JPAQuery<MemberTeamDto> localSearchQuery(MemberSearchCondition condition) {
+        if(!teamNames.isUsable()){
+            return searchQuery(queryFactory, condition);
+        }
+        return queryFactory
+                .select(teamNames.projection())
+                .from(member)
+                .where(MemberSearchConditionFilter.of(condition, teamNames.filters()));
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    private JPAQuery<Member> localCountQuery(MemberSearchCondition condition) {
+        if(!teamNames.isUsable()){
+            return countQuery(queryFactory, condition);
+        }
+        return queryFactory
+                .select(member)
+                .from(member)
+                .where(MemberSearchConditionFilter.of(condition, teamNames.filters()));
     }
 
+    private JPAQuery<MemberTeamDto> searchQuery(JPAQueryFactory factory, MemberSearchCondition condition) {
+        return factory
+                .select(Projections.constructor(
+                        MemberTeamDto.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchConditionFilter.of(condition));
+    }
+
+    private JPAQuery<Member> countQuery(JPAQueryFactory factory, MemberSearchCondition condition) {
+        return factory
+                .select(member)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchConditionFilter.of(condition));
+    }
 }
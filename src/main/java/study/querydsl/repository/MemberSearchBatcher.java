@@ -0,0 +1,94 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSearchConditionFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+
+//여러 검색 조건을 적은 수의 OR 조건으로 합치고, 결과를 다시 조건별로 나눈다
+class MemberSearchBatcher {
+
+    //조건 하나의 where 절은 생성된 필터로 만들고, 팀 이름 사전을 쓰면 teamName 만 바꿔 끼운다
+    private final MemberSearchConditionFilter.Overrides filters;
+
+    MemberSearchBatcher(MemberSearchConditionFilter.Overrides filters) {
+        this.filters = filters;
+    }
+
+    //조건이 하나도 없는 검색이 섞여 있으면 전체 조회이므로 null.
+    //빈 목록이면 어떤 행에도 맞는 조건이 없다는 뜻이다
+    List<Predicate> coalesce(Collection<MemberSearchCondition> conditions){
+        Set<String> usernames = new LinkedHashSet<>();
+        Set<String> teamNames = new LinkedHashSet<>();
+        List<int[]> ageRanges = new ArrayList<>();
+        List<Predicate> predicates = new ArrayList<>();
+
+        for(MemberSearchCondition condition : conditions){
+            boolean hasUsername = StringUtils.hasText(condition.getUsername());
+            boolean hasTeamName = StringUtils.hasText(condition.getTeamName());
+            boolean hasAge = condition.getAgeGoe() != null || condition.getAgeLoe() != null;
+
+            if(!hasUsername && !hasTeamName && !hasAge){
+                return null;
+            }
+            if(hasUsername && !hasTeamName && !hasAge){
+                usernames.add(condition.getUsername());
+            } else if(hasTeamName && !hasUsername && !hasAge){
+                teamNames.add(condition.getTeamName());
+            } else if(hasAge && !hasUsername && !hasTeamName){
+                ageRanges.add(new int[]{
+                        condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE,
+                        condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE});
+            } else {
+                predicates.add(predicateOf(condition));
+            }
+        }
+
+        if(!usernames.isEmpty()){
+            predicates.add(member.username.in(usernames));
+        }
+        for(String teamName : teamNames){
+            predicates.add(filters.teamName(teamName));
+        }
+        for(int[] range : mergeRanges(ageRanges)){
+            predicates.add(ExpressionUtils.allOf(
+                    range[0] != Integer.MIN_VALUE ? filters.ageGoe(range[0]) : null,
+                    range[1] != Integer.MAX_VALUE ? filters.ageLoe(range[1]) : null));
+        }
+        return predicates;
+    }
+
+    //조건 하나에 해당하는 where 절. 조건이 없으면 null
+    Predicate predicateOf(MemberSearchCondition condition){
+        return ExpressionUtils.allOf(MemberSearchConditionFilter.of(condition, filters));
+    }
+
+    //겹치거나 맞닿은 나이 구간은 하나로 합친다
+    static List<int[]> mergeRanges(List<int[]> ranges){
+        List<int[]> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingInt(r -> r[0]));
+        List<int[]> merged = new ArrayList<>();
+        for(int[] range : sorted){
+            if(range[0] > range[1]){
+                continue;
+            }
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if(last != null && (long) range[0] <= (long) last[1] + 1){
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(new int[]{range[0], range[1]});
+            }
+        }
+        return merged;
+    }
+}
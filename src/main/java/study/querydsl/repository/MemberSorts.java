@@ -0,0 +1,41 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.SortPolicy;
+
+import java.util.Comparator;
+import java.util.Map;
+
+import static study.querydsl.entity.QMember.member;
+
+public final class MemberSorts {
+
+    //teamName 처럼 조인 후 정렬해야 하는 키는 허용하지 않는다
+    public static final SortPolicy POLICY = SortPolicy.builder("memberId", member.id)
+            .allow("username", member.username)
+            .allow("age", member.age)
+            .allow("teamId", member.team.id)
+            .build();
+
+    private static final Map<String, Comparator<MemberTeamDto>> COMPARATORS = Map.of(
+            "memberId", Comparator.comparing(MemberTeamDto::getMemberId),
+            "username", Comparator.comparing(MemberTeamDto::getUsername, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "age", Comparator.comparingInt(MemberTeamDto::getAge),
+            "teamId", Comparator.comparing(MemberTeamDto::getTeamId, Comparator.nullsFirst(Comparator.naturalOrder()))
+    );
+
+    private MemberSorts(){}
+
+    public static Comparator<MemberTeamDto> comparator(Sort sort){
+        Comparator<MemberTeamDto> result = null;
+        for(Sort.Order order : POLICY.sanitize(sort)){
+            Comparator<MemberTeamDto> comparator = COMPARATORS.get(order.getProperty());
+            if(order.isDescending()){
+                comparator = comparator.reversed();
+            }
+            result = result == null ? comparator : result.thenComparing(comparator);
+        }
+        return result;
+    }
+}
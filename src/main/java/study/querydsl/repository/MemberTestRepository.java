@@ -1,13 +1,14 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.Projections;
 import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
-import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSearchConditionFilter;
+import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
@@ -37,59 +38,57 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
         JPAQuery<Member> query = selectFrom(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
-        List<Member> content = getQuerydsl().applyPagination(pageable, query).fetch();
+                .where(MemberSearchConditionFilter.of(condition));
+        List<Member> content = MemberSorts.POLICY.apply(pageable, query).fetch();
         return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
     }
 
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
-        return applyPagination(pageable, query ->
+        return applyPagination(pageable, MemberSorts.POLICY, query ->
                 query.selectFrom(member)
                         .leftJoin(member.team, team)
-                        .where(usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        )
+                        .where(MemberSearchConditionFilter.of(condition))
         );
     }
 
     public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable) {
-        return applyPagination(pageable, contentQuery -> contentQuery
+        return applyPagination(pageable, MemberSorts.POLICY, contentQuery -> contentQuery
                 .selectFrom(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                       teamNameEq(condition.getTeamName()),
-                       ageGoe(condition.getAgeGoe()),
-                       ageLoe(condition.getAgeLoe())
-                ), countQuery -> countQuery
+                .where(MemberSearchConditionFilter.of(condition)),
+                countQuery -> countQuery
                 .selectFrom(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+                .where(MemberSearchConditionFilter.of(condition))
         );
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username):null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName):null;
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    public List<MemberTeamDto> searchCached(MemberSearchCondition condition) {
+        return fetchCached(select(Projections.constructor(
+                        MemberTeamDto.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchConditionFilter.of(condition)));
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    public Page<MemberTeamDto> searchPageCached(MemberSearchCondition condition, Pageable pageable) {
+        return applyPaginationCached(pageable, MemberSorts.POLICY, contentQuery -> contentQuery
+                .select(Projections.constructor(
+                        MemberTeamDto.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchConditionFilter.of(condition)),
+                countQuery -> countQuery
+                .select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchConditionFilter.of(condition))
+        );
     }
-
 }
@@ -0,0 +1,78 @@
+package study.querydsl.repository.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.ForestStatsDto;
+import study.querydsl.entity.test.Forest;
+import study.querydsl.entity.test.Leaf;
+import study.querydsl.entity.test.Tree;
+import study.querydsl.repository.ForestRepository;
+import study.querydsl.repository.change.ChangeEvent;
+import study.querydsl.repository.change.ChangeSubscriber;
+import study.querydsl.repository.support.TransactionState;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+//자주 조회되는 숲의 집계 결과를 잠시 보관.
+//변경 피드는 커밋 뒤 비동기로 도착하므로 그 사이(최대 ttl)에는 이전 집계가 보일 수 있다. 바로 최신 값이 필요하면 evict 한다
+@Component
+public class ForestRollupCache implements ChangeSubscriber {
+
+    private static final Set<Class<?>> FOREST_TYPES = Set.of(Forest.class, Tree.class, Leaf.class);
+
+    private final boolean enabled;
+    private final ForestRepository forestRepository;
+    private final Cache<Long, Optional<ForestStatsDto>> rollups;
+
+    public ForestRollupCache(@Value("${forest.rollup.cache.enabled:false}") boolean enabled,
+                             @Value("${forest.rollup.cache.maximum-size:1000}") long maximumSize,
+                             @Value("${forest.rollup.cache.ttl:1m}") Duration ttl,
+                             ForestRepository forestRepository) {
+        this.enabled = enabled;
+        this.forestRepository = forestRepository;
+        this.rollups = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<ForestStatsDto> get(Long forestId){
+        //쓰기 트랜잭션에서 읽은 값은 커밋 전 데이터일 수 있어 캐시에 넣지 않는다
+        if(!enabled || TransactionState.inReadWriteTransaction()){
+            return forestRepository.forestStats(forestId);
+        }
+        return rollups.get(forestId, forestRepository::forestStats);
+    }
+
+    public void evict(Long forestId){
+        rollups.invalidate(forestId);
+    }
+
+    //잎 하나가 어느 숲에 속하는지는 알 수 없으므로 숲 계층의 변경이 오면 전체를 비운다
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        if(events.stream().anyMatch(e -> FOREST_TYPES.contains(e.getEntityType()))){
+            rollups.invalidateAll();
+        }
+    }
+
+    public Map<String, Object> stats(){
+        CacheStats stats = rollups.stats();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("enabled", enabled);
+        map.put("size", rollups.estimatedSize());
+        map.put("hitRate", stats.hitRate());
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        return map;
+    }
+}
@@ -0,0 +1,203 @@
+package study.querydsl.repository.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.StringCollation;
+import study.querydsl.repository.support.TransactionState;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+//회원을 엔티티가 아닌 불변 스냅샷으로 보관하고, 꺼낼 때마다 호출한 쪽 전용의 MemberTeamDto 를 새로 만든다.
+//엔티티를 돌려주지 않으므로 영속성 컨텍스트의 동일성이나 연관 컬렉션과 섞이지 않는다
+@Component
+public class MemberCache {
+
+    private final boolean enabled;
+    private final StringCollation collation;
+    private final Cache<Long, Snapshot> byId;
+    private final Cache<String, List<Snapshot>> byUsername;
+    //회원 id -> 그 회원이 담긴 byUsername 키들. byUsername 에서 빠지는 항목과 함께 지워서 캐시 크기를 넘지 않는다
+    private final Map<Long, Set<String>> cachedUsernames = new ConcurrentHashMap<>();
+    //지울 때마다 올려서, 읽는 사이에 지워진 값을 뒤늦게 담지 않도록 한다
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder discarded = new LongAdder();
+
+    public MemberCache(@Value("${member.cache.enabled:true}") boolean enabled,
+                       @Value("${member.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${member.cache.ttl:10m}") Duration ttl,
+                       StringCollation collation) {
+        this.enabled = enabled;
+        this.collation = collation;
+        //Caffeine 의 기본 정책이 W-TinyLFU
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byUsername = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                //제거 알림을 같은 스레드에서 받아야 뒤이어 들어온 같은 키의 색인을 지우지 않는다
+                .executor(Runnable::run)
+                .<String, List<Snapshot>>removalListener((key, snapshots, cause) -> {
+                    if(cause != RemovalCause.REPLACED && snapshots != null){
+                        snapshots.forEach(snapshot -> unindex(snapshot.memberId, key));
+                    }
+                })
+                .build();
+    }
+
+    public Optional<MemberTeamDto> getById(Long id, Function<Long, Optional<MemberTeamDto>> loader){
+        if(!isReadable()){
+            return loader.apply(id);
+        }
+        Snapshot cached = byId.getIfPresent(id);
+        if(cached != null){
+            return Optional.of(cached.toDto());
+        }
+        long loadedAt = generation.get();
+        Optional<MemberTeamDto> loaded = loader.apply(id);
+        loaded.ifPresent(dto -> putIfCurrent(byId, id, new Snapshot(dto), loadedAt));
+        return loaded;
+    }
+
+    public List<MemberTeamDto> getByUsername(String username, Supplier<List<MemberTeamDto>> loader){
+        if(!isReadable()){
+            return loader.get();
+        }
+        //DB 가 같은 값으로 보는 이름은 한 항목을 같이 쓴다
+        String key = collation.keyOf(username);
+        List<Snapshot> cached = byUsername.getIfPresent(key);
+        if(cached != null){
+            return cached.stream().map(Snapshot::toDto).collect(Collectors.toList());
+        }
+        long loadedAt = generation.get();
+        List<MemberTeamDto> loaded = loader.get();
+        List<Snapshot> snapshots = loaded.stream().map(Snapshot::new).collect(Collectors.toUnmodifiableList());
+        //색인을 먼저 걸어야 담는 사이의 evict(id) 가 이 항목을 찾는다
+        snapshots.forEach(snapshot -> cachedUsernames.computeIfAbsent(snapshot.memberId, id -> ConcurrentHashMap.newKeySet()).add(key));
+        putIfCurrent(byUsername, key, snapshots, loadedAt);
+        return loaded;
+    }
+
+    //트랜잭션 안에서는 지금 지우고 커밋 뒤에 한 번 더 지운다. 그 사이에 다른 스레드가 읽은 옛 값은 세대가 달라 담기지 않는다.
+    //트랜잭션 밖이면 afterCommit 이 바로 실행하므로 한 번만 지운다
+    public void evict(Member member){
+        Long id = member.getId();
+        String username = member.getUsername();
+        if(TransactionState.isSynchronizationActive()){
+            evictNow(id, username);
+        }
+        TransactionState.afterCommit(() -> evictNow(id, username));
+    }
+
+    public void invalidateAll(){
+        if(TransactionState.isSynchronizationActive()){
+            invalidateAllNow();
+        }
+        TransactionState.afterCommit(this::invalidateAllNow);
+    }
+
+    public Map<String, Object> stats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byId", toMap(byId.stats(), byId.estimatedSize()));
+        stats.put("byUsername", toMap(byUsername.stats(), byUsername.estimatedSize()));
+        stats.put("usernameIndexSize", cachedUsernames.size());
+        stats.put("discarded", discarded.sum());
+        return stats;
+    }
+
+    //담기 전후로 세대를 확인해서, 그 사이 지워졌으면 담지 않거나 담은 것을 다시 지운다
+    private <K, V> void putIfCurrent(Cache<K, V> cache, K key, V value, long loadedAt){
+        if(generation.get() != loadedAt){
+            discarded.increment();
+            return;
+        }
+        cache.put(key, value);
+        if(generation.get() != loadedAt){
+            cache.invalidate(key);
+            discarded.increment();
+        }
+    }
+
+    private void evictNow(Long id, String username){
+        generation.incrementAndGet();
+        if(id != null){
+            byId.invalidate(id);
+            Set<String> keys = cachedUsernames.remove(id);
+            if(keys != null){
+                byUsername.invalidateAll(keys);
+            }
+        }
+        if(username != null){
+            byUsername.invalidate(collation.keyOf(username));
+        }
+    }
+
+    private void invalidateAllNow(){
+        generation.incrementAndGet();
+        byId.invalidateAll();
+        byUsername.invalidateAll();
+        cachedUsernames.clear();
+    }
+
+    private void unindex(Long memberId, String key){
+        cachedUsernames.computeIfPresent(memberId, (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    //쓰기 트랜잭션 안에서는 커밋 전 데이터가 캐시에 섞이지 않도록 DB 를 바로 조회
+    private boolean isReadable(){
+        return enabled && !TransactionState.inReadWriteTransaction();
+    }
+
+    private static Map<String, Object> toMap(CacheStats stats, long size){
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", size);
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        map.put("hitRate", stats.hitRate());
+        map.put("evictionCount", stats.evictionCount());
+        return map;
+    }
+
+    private static final class Snapshot {
+        private final Long memberId;
+        private final String username;
+        private final int age;
+        private final Long teamId;
+        private final String teamName;
+
+        Snapshot(MemberTeamDto dto) {
+            this.memberId = dto.getMemberId();
+            this.username = dto.getUsername();
+            this.age = dto.getAge();
+            this.teamId = dto.getTeamId();
+            this.teamName = dto.getTeamName();
+        }
+
+        MemberTeamDto toDto(){
+            return new MemberTeamDto(memberId, username, age, teamId, teamName);
+        }
+    }
+}
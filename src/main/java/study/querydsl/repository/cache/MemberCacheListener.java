@@ -0,0 +1,28 @@
+package study.querydsl.repository.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+@Component
+@RequiredArgsConstructor
+public class MemberCacheListener {
+
+    private final MemberCache memberCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity){
+        if(entity instanceof Member){
+            memberCache.evict((Member) entity);
+        } else {
+            //팀 이름 변경 등은 캐시된 회원 전체에 영향을 준다
+            memberCache.invalidateAll();
+        }
+    }
+}
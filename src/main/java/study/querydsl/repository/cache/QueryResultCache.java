@@ -0,0 +1,279 @@
+package study.querydsl.repository.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.change.ChangeEvent;
+import study.querydsl.repository.change.SynchronousChangeSubscriber;
+import study.querydsl.repository.support.TransactionState;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+//Querydsl 쿼리 결과를 JPQL 과 바인딩 값으로 묶어 보관하고, 쿼리에 등장한 엔티티가 바뀌면 비운다.
+//무효화는 커밋한 스레드가 afterCompletion 에서 직접 하므로, 커밋이 반환된 뒤의 조회는 같은 스레드든 다른 스레드든 새 결과를 읽는다.
+//커밋과 afterCompletion 사이의 아주 짧은 틈에 다른 스레드가 읽으면 옛 결과를 받을 수 있고, 이때 담으려던 값은 버전 확인으로 버린다
+@Component
+public class QueryResultCache implements SynchronousChangeSubscriber {
+
+    private final boolean enabled;
+    private final Cache<Key, Object> results;
+    //조회 중에 들어온 변경을 알아채기 위한 엔티티별 버전
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final LongAdder bypassed = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+
+    public QueryResultCache(@Value("${query.result-cache.enabled:false}") boolean enabled,
+                            @Value("${query.result-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${query.result-cache.ttl:5m}") Duration ttl) {
+        this.enabled = enabled;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public <T> List<T> fetch(JPAQuery<T> query){
+        Expression<?> projection = query.getMetadata().getProjection();
+        //엔티티는 영속성 컨텍스트마다 따로 있어야 하므로 DTO 나 값 프로젝션만 공유한다
+        if(projection instanceof EntityPath){
+            throw new IllegalArgumentException("entity results can't be shared between persistence contexts: " + projection);
+        }
+        return load(query.getMetadata(), false, () -> Collections.unmodifiableList(new ArrayList<>(query.fetch())));
+    }
+
+    public long fetchCount(JPAQuery<?> query){
+        return load(query.getMetadata(), true, query::fetchCount);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V load(QueryMetadata metadata, boolean count, Supplier<V> loader){
+        //쓰기 트랜잭션은 아직 커밋하지 않은 자기 변경을 봐야 한다
+        if(!enabled || TransactionState.inReadWriteTransaction()){
+            bypassed.increment();
+            return loader.get();
+        }
+        Key key = Key.of(metadata, count);
+        Object cached = results.getIfPresent(key);
+        if(cached != null){
+            return (V) cached;
+        }
+        long version = versionOf(key.entityTypes);
+        V value = loader.get();
+        //조회하는 사이 관련 엔티티가 바뀌었으면 이미 낡은 결과일 수 있으니 담지 않는다
+        if(version == versionOf(key.entityTypes)){
+            results.put(key, value);
+        } else {
+            discarded.increment();
+        }
+        return value;
+    }
+
+    private long versionOf(Set<Class<?>> entityTypes){
+        long sum = 0;
+        for(Class<?> type : entityTypes){
+            AtomicLong version = versions.get(type);
+            sum += version != null ? version.get() : 0;
+        }
+        return sum;
+    }
+
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        Set<Class<?>> changed = events.stream()
+                .map(ChangeEvent::getEntityType)
+                .collect(Collectors.toSet());
+        changed.forEach(type -> versions.computeIfAbsent(type, t -> new AtomicLong()).incrementAndGet());
+        results.asMap().keySet().removeIf(key -> {
+            boolean touched = key.touches(changed);
+            if(touched){
+                invalidated.increment();
+            }
+            return touched;
+        });
+    }
+
+    public void invalidateAll(){
+        results.invalidateAll();
+    }
+
+    public Map<String, Object> stats(){
+        CacheStats stats = results.stats();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("enabled", enabled);
+        map.put("size", results.estimatedSize());
+        map.put("hitRate", stats.hitRate());
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        map.put("bypassed", bypassed.sum());
+        map.put("discarded", discarded.sum());
+        map.put("invalidated", invalidated.sum());
+        return map;
+    }
+
+    @EqualsAndHashCode
+    static final class Key {
+        private final String jpql;
+        private final List<Object> constants;
+        private final Map<ParamExpression<?>, Object> params;
+        private final QueryModifiers modifiers;
+        private final Class<?> projectionType;
+        private final boolean count;
+        @EqualsAndHashCode.Exclude
+        private final Set<Class<?>> entityTypes;
+
+        private Key(String jpql, List<Object> constants, Map<ParamExpression<?>, Object> params,
+                    QueryModifiers modifiers, Class<?> projectionType, boolean count, Set<Class<?>> entityTypes) {
+            this.jpql = jpql;
+            this.constants = constants;
+            this.params = params;
+            this.modifiers = modifiers;
+            this.projectionType = projectionType;
+            this.count = count;
+            this.entityTypes = entityTypes;
+        }
+
+        static Key of(QueryMetadata metadata, boolean count){
+            JPQLSerializer serializer = new JPQLSerializer(JPQLTemplates.DEFAULT);
+            serializer.serialize(metadata, count, null);
+            //상수는 ?1, ?2 처럼 등장 순서로 라벨이 붙는다
+            List<Object> constants = serializer.getConstantToAllLabels().entrySet().stream()
+                    .sorted(Comparator.comparingInt(e -> Integer.parseInt(e.getValue().replaceAll("\\D", ""))))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            Expression<?> projection = metadata.getProjection();
+            return new Key(serializer.toString(), constants, new HashMap<>(metadata.getParams()),
+                    count ? null : metadata.getModifiers(),
+                    projection != null ? projection.getType() : null,
+                    count, entityTypesOf(metadata));
+        }
+
+        boolean touches(Set<Class<?>> changed){
+            for(Class<?> type : entityTypes){
+                for(Class<?> changedType : changed){
+                    if(type.isAssignableFrom(changedType) || changedType.isAssignableFrom(type)){
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    static Set<Class<?>> entityTypesOf(QueryMetadata metadata){
+        Set<Class<?>> types = new HashSet<>();
+        EntityTypeCollector.INSTANCE.collect(metadata, types);
+        return types;
+    }
+
+    //from, join, where, 서브쿼리까지 따라가며 쿼리가 읽는 엔티티 타입을 모은다
+    private static final class EntityTypeCollector implements Visitor<Void, Set<Class<?>>> {
+
+        private static final EntityTypeCollector INSTANCE = new EntityTypeCollector();
+
+        void collect(QueryMetadata metadata, Set<Class<?>> types){
+            for(JoinExpression join : metadata.getJoins()){
+                join.getTarget().accept(this, types);
+                if(join.getCondition() != null){
+                    join.getCondition().accept(this, types);
+                }
+            }
+            accept(metadata.getWhere(), types);
+            accept(metadata.getHaving(), types);
+            accept(metadata.getProjection(), types);
+        }
+
+        private void accept(Expression<?> expression, Set<Class<?>> types){
+            if(expression != null){
+                expression.accept(this, types);
+            }
+        }
+
+        @Override
+        public Void visit(Constant<?> expr, Set<Class<?>> types) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<Class<?>> types) {
+            expr.getArgs().forEach(arg -> accept(arg, types));
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<Class<?>> types) {
+            expr.getArgs().forEach(arg -> accept(arg, types));
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<Class<?>> types) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<Class<?>> types) {
+            if(expr instanceof EntityPath){
+                types.add(expr.getType());
+            } else if(expr instanceof CollectionExpression){
+                types.add(((CollectionExpression<?, ?>) expr).getParameter(0));
+            }
+            Path<?> parent = expr.getMetadata().getParent();
+            if(parent != null){
+                parent.accept(this, types);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<Class<?>> types) {
+            collect(expr.getMetadata(), types);
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<Class<?>> types) {
+            expr.getArgs().forEach(arg -> {
+                if(arg instanceof Expression){
+                    accept((Expression<?>) arg, types);
+                }
+            });
+            return null;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package study.querydsl.repository.cache;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchConditionFilter;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.change.ChangeEvent;
+import study.querydsl.repository.change.SynchronousChangeSubscriber;
+import study.querydsl.repository.support.TransactionState;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//팀 수가 적으니 id -> 이름을 메모리에 두고 MemberTeamDto 조회에서 team 조인을 없앤다.
+//팀 변경이 커밋되면 그 스레드에서 버전만 올리고, 사전은 비동기로 다시 읽는다.
+//사전이 그 버전까지 따라잡기 전에는 조인으로 조회하므로 커밋이 반환된 뒤의 조회에 새 팀이 빠지지 않는다
+@Slf4j
+@Component
+public class TeamNameDictionary implements SynchronousChangeSubscriber, DisposableBean {
+
+    //없는 팀 id 가 계속 조회되어도 사전을 이 간격보다 자주 다시 읽지 않는다
+    private static final long MISS_REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final EntityManagerFactory emf;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    //커밋된 팀 변경 수. 사전은 읽기 시작할 때의 값을 버전으로 가진다
+    private final AtomicLong teamChanges = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private final MemberSearchConditionFilter.Overrides filters = new MemberSearchConditionFilter.Overrides() {
+        @Override
+        public BooleanExpression teamName(String teamName) {
+            return teamNameEq(teamName);
+        }
+    };
+
+    public TeamNameDictionary(@Value("${member.search.team-name-dictionary.enabled:false}") boolean enabled,
+                              EntityManagerFactory emf) {
+        this.enabled = enabled;
+        this.emf = emf;
+    }
+
+    //사전을 아직 읽지 못했거나 마지막 팀 변경보다 낡았으면, 또는 커밋 전 팀 변경이 보여야 하는 쓰기 트랜잭션에서는 조인으로 조회
+    public boolean isUsable(){
+        if(!enabled){
+            return false;
+        }
+        Snapshot current = snapshot;
+        if(current == null || current.version != teamChanges.get()){
+            refreshAsync(false);
+            return false;
+        }
+        return !TransactionState.inReadWriteTransaction();
+    }
+
+    //행 매핑 중에 불리므로 DB 를 조회하지 않는다. 첫 조회 커넥션을 잡은 채로 커넥션을 하나 더 얻으면 풀이 마를 수 있다.
+    //isUsable 을 확인한 뒤 조회가 끝나기 전에 커밋된 새 팀은 이름 없이 돌려주고 사전을 비동기로 다시 읽는다
+    public String nameOf(Long teamId){
+        if(teamId == null){
+            return null;
+        }
+        Snapshot current = snapshot;
+        if(current == null || !current.names.containsKey(teamId)){
+            refreshAsync(true);
+            return null;
+        }
+        return current.names.get(teamId);
+    }
+
+    public List<Long> idsOf(String teamName){
+        return current().idsByName.getOrDefault(teamName, Collections.emptyList());
+    }
+
+    //teamName 조건도 조인 없이 team_id 로 바꾼다
+    public BooleanExpression teamNameEq(String teamName){
+        return member.team.id.in(idsOf(teamName));
+    }
+
+    //생성된 검색 조건에서 teamName 만 사전 조건으로 바꾼다
+    public MemberSearchConditionFilter.Overrides filters(){
+        return filters;
+    }
+
+    public Expression<MemberTeamDto> projection(){
+        return new MemberTeamProjection();
+    }
+
+    //커밋한 스레드에서 불리므로 DB 는 읽지 않는다
+    @Override
+    public void onChanges(List<ChangeEvent> events) {
+        if(enabled && events.stream().anyMatch(e -> e.getEntityType() == Team.class)){
+            teamChanges.incrementAndGet();
+            if(snapshot != null){
+                refreshAsync(false);
+            }
+        }
+    }
+
+    private Snapshot current(){
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    public void reload(){
+        refresh();
+    }
+
+    //워밍업처럼 첫 조회 전에 사전이 있어야 하는 곳에서 부른다
+    public void loadNow(){
+        if(enabled && snapshot == null){
+            refresh();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup(){
+        if(enabled && snapshot == null){
+            refreshAsync(false);
+        }
+    }
+
+    //대기 중인 재조회가 있으면 합친다. 없는 id 때문이면 최근에 읽은 사전은 다시 읽지 않는다
+    private void refreshAsync(boolean onMiss){
+        Snapshot current = snapshot;
+        if(onMiss && current != null && System.nanoTime() - current.loadedAt < MISS_REFRESH_INTERVAL_NANOS){
+            return;
+        }
+        if(refreshPending.compareAndSet(false, true)){
+            loader.execute(() -> {
+                refreshPending.set(false);
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    log.warn("team name dictionary refresh failed", e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void destroy() {
+        loader.shutdownNow();
+    }
+
+    private synchronized Snapshot refresh(){
+        //읽는 도중에 커밋된 변경은 다음 버전이 되도록 조회 전에 잡는다
+        long version = teamChanges.get();
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Tuple> teams = new JPAQueryFactory(em)
+                    .select(team.id, team.name)
+                    .from(team)
+                    .fetch();
+            Map<Long, String> names = new HashMap<>();
+            Map<String, List<Long>> idsByName = new HashMap<>();
+            for(Tuple row : teams){
+                names.put(row.get(team.id), row.get(team.name));
+                idsByName.computeIfAbsent(row.get(team.name), k -> new ArrayList<>()).add(row.get(team.id));
+            }
+            snapshot = new Snapshot(version, names, idsByName);
+            log.debug("team name dictionary v{} loaded: {} teams", version, names.size());
+            return snapshot;
+        } finally {
+            em.close();
+        }
+    }
+
+    static class Snapshot {
+        private final long version;
+        private final Map<Long, String> names;
+        private final Map<String, List<Long>> idsByName;
+        private final long loadedAt = System.nanoTime();
+
+        Snapshot(long version, Map<Long, String> names, Map<String, List<Long>> idsByName) {
+            this.version = version;
+            this.names = names;
+            this.idsByName = idsByName;
+        }
+    }
+
+    //member 컬럼과 team_id 만 조회하고 팀 이름은 사전에서 채운다
+    private class MemberTeamProjection extends FactoryExpressionBase<MemberTeamDto> {
+
+        private final List<Expression<?>> args = List.of(member.id, member.username, member.age, member.team.id);
+
+        MemberTeamProjection() {
+            super(MemberTeamDto.class);
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        public MemberTeamDto newInstance(Object... a) {
+            Long teamId = (Long) a[3];
+            return new MemberTeamDto((Long) a[0], (String) a[1], (Integer) a[2], teamId, nameOf(teamId));
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.repository.change;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+public class ChangeEvent {
+
+    private final Class<?> entityType;
+    //BULK 이벤트는 id 가 없다
+    private final Long id;
+    private final ChangeType type;
+
+    private ChangeEvent(Class<?> entityType, Long id, ChangeType type) {
+        this.entityType = entityType;
+        this.id = id;
+        this.type = type;
+    }
+
+    public static ChangeEvent upsert(Class<?> entityType, Long id){
+        return new ChangeEvent(entityType, id, ChangeType.UPSERT);
+    }
+
+    public static ChangeEvent delete(Class<?> entityType, Long id){
+        return new ChangeEvent(entityType, id, ChangeType.DELETE);
+    }
+
+    public static ChangeEvent bulk(Class<?> entityType){
+        return new ChangeEvent(entityType, null, ChangeType.BULK);
+    }
+
+    public boolean isBulk(){
+        return type == ChangeType.BULK;
+    }
+}
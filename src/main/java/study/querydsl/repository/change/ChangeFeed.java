@@ -0,0 +1,265 @@
+package study.querydsl.repository.change;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//변경을 링 버퍼에 모아 전용 스레드 하나가 구독자들에게 묶어서 전달한다.
+//스레드는 컨텍스트가 시작될 때 띄우고, 할 일이 없으면 잠깐 돌다가 다음 이벤트가 깨울 때까지 잠든다.
+//SynchronousChangeSubscriber 는 예외로, 커밋한 스레드에서 바로 받는다
+@Slf4j
+@Component
+public class ChangeFeed implements SmartLifecycle {
+
+    //깨우기를 놓치더라도 이 간격 안에는 버퍼를 다시 본다
+    private static final long MAX_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int SPINS_BEFORE_PARK = 100;
+
+
+    private final ChangeRingBuffer buffer;
+    private final int batchSize;
+    private final ObjectProvider<ChangeSubscriber> beanSubscribers;
+    private final List<ChangeSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    //버퍼가 넘쳐 버려진 이벤트의 엔티티 타입은 BULK 로 대신 알린다
+    private final Set<Class<?>> overflowedTypes = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+
+    private volatile Thread dispatcher;
+    private volatile boolean running;
+    //디스패처가 잠들었거나 잠들려는 중이면 true. 생산자는 이 값을 보고 깨운다
+    private volatile boolean parked;
+
+    public ChangeFeed(@Value("${member.change-feed.capacity:8192}") int capacity,
+                      @Value("${member.change-feed.batch-size:256}") int batchSize,
+                      ObjectProvider<ChangeSubscriber> beanSubscribers) {
+        this.buffer = new ChangeRingBuffer(capacity);
+        this.batchSize = batchSize;
+        this.beanSubscribers = beanSubscribers;
+    }
+
+    @Override
+    public synchronized void start() {
+        if(running){
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::dispatchLoop, "change-feed");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        Thread thread = dispatcher;
+        running = false;
+        if(thread == null){
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dispatcher = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void subscribe(ChangeSubscriber subscriber){
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(ChangeSubscriber subscriber){
+        subscribers.remove(subscriber);
+    }
+
+    public void upserted(Class<?> entityType, Long id){
+        publish(ChangeEvent.upsert(entityType, id));
+    }
+
+    public void deleted(Class<?> entityType, Long id){
+        publish(ChangeEvent.delete(entityType, id));
+    }
+
+    //queryFactory.update/delete 는 ChangePublishingQueryFactory 가 알린다. 그 밖의 벌크 DML(JDBC 등)은 호출하는 쪽에서 부른다
+    public void bulkChanged(Class<?> entityType){
+        publish(ChangeEvent.bulk(entityType));
+    }
+
+    public void publish(ChangeEvent event){
+        //트랜잭션 안의 변경은 모아 두었다가 커밋된 경우에만 내보낸다
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            pendingEvents().add(event);
+        } else {
+            deliverSynchronously(List.of(event));
+            enqueue(event);
+        }
+    }
+
+    public Map<String, Object> stats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("published", published.get());
+        stats.put("dropped", dropped.get());
+        stats.put("batches", batches.get());
+        stats.put("delivered", delivered.get());
+        stats.put("queued", buffer.size());
+        stats.put("capacity", buffer.capacity());
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<ChangeEvent> pendingEvents(){
+        Set<ChangeEvent> pending = (Set<ChangeEvent>) TransactionSynchronizationManager.getResource(this);
+        if(pending == null){
+            Set<ChangeEvent> events = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeFeed.this);
+                    if(status == STATUS_COMMITTED){
+                        deliverSynchronously(coalesce(events));
+                        events.forEach(ChangeFeed.this::enqueue);
+                    }
+                }
+            });
+            pending = events;
+        }
+        return pending;
+    }
+
+    private void enqueue(ChangeEvent event){
+        if(buffer.offer(event)){
+            published.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+            overflowedTypes.add(event.getEntityType());
+        }
+        //버퍼에 넣은 뒤에 parked 를 읽어야, 디스패처가 잠들기 직전에 버퍼를 다시 볼 때 이 이벤트를 놓치지 않는다
+        Thread thread = dispatcher;
+        if(parked && thread != null){
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void dispatchLoop(){
+        List<ChangeEvent> batch = new ArrayList<>(batchSize);
+        int idle = 0;
+        while(running){
+            buffer.drain(batch::add, batchSize);
+            addOverflowed(batch);
+            if(batch.isEmpty()){
+                //몰려 오는 이벤트는 짧게 쉬며 받고, 한동안 없으면 생산자가 깨울 때까지 잠든다
+                if(idle++ < SPINS_BEFORE_PARK){
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                } else {
+                    parkUntilEnqueued();
+                }
+                continue;
+            }
+            idle = 0;
+            deliver(coalesce(batch));
+            batch.clear();
+        }
+    }
+
+    private void parkUntilEnqueued(){
+        parked = true;
+        try {
+            if(running && buffer.size() == 0 && overflowedTypes.isEmpty()){
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+        } finally {
+            parked = false;
+        }
+    }
+
+    private void addOverflowed(List<ChangeEvent> batch){
+        if(overflowedTypes.isEmpty()){
+            return;
+        }
+        for(Class<?> entityType : new ArrayList<>(overflowedTypes)){
+            overflowedTypes.remove(entityType);
+            batch.add(ChangeEvent.bulk(entityType));
+        }
+    }
+
+    //같은 엔티티의 변경은 마지막 것만, BULK 가 있는 타입은 BULK 하나로 합친다
+    static List<ChangeEvent> coalesce(Collection<ChangeEvent> events){
+        Set<Class<?>> bulkTypes = new HashSet<>();
+        for(ChangeEvent event : events){
+            if(event.isBulk()){
+                bulkTypes.add(event.getEntityType());
+            }
+        }
+        Map<Object, ChangeEvent> coalesced = new LinkedHashMap<>();
+        for(ChangeEvent event : events){
+            if(event.isBulk()){
+                coalesced.put(event.getEntityType(), event);
+            } else if(!bulkTypes.contains(event.getEntityType())){
+                coalesced.remove(List.of(event.getEntityType(), event.getId()));
+                coalesced.put(List.of(event.getEntityType(), event.getId()), event);
+            }
+        }
+        return new ArrayList<>(coalesced.values());
+    }
+
+    //커밋 직후 같은 스레드의 다음 조회가 낡은 결과를 보지 않도록 디스패처를 기다리지 않는다
+    private void deliverSynchronously(List<ChangeEvent> events){
+        if(events.isEmpty()){
+            return;
+        }
+        beanSubscribers.orderedStream()
+                .filter(subscriber -> subscriber instanceof SynchronousChangeSubscriber)
+                .forEach(subscriber -> deliver(subscriber, events));
+        subscribers.stream()
+                .filter(subscriber -> subscriber instanceof SynchronousChangeSubscriber)
+                .forEach(subscriber -> deliver(subscriber, events));
+    }
+
+    private void deliver(List<ChangeEvent> events){
+        batches.incrementAndGet();
+        delivered.addAndGet(events.size());
+        beanSubscribers.orderedStream()
+                .filter(subscriber -> !(subscriber instanceof SynchronousChangeSubscriber))
+                .forEach(subscriber -> deliver(subscriber, events));
+        subscribers.stream()
+                .filter(subscriber -> !(subscriber instanceof SynchronousChangeSubscriber))
+                .forEach(subscriber -> deliver(subscriber, events));
+    }
+
+    private void deliver(ChangeSubscriber subscriber, List<ChangeEvent> events){
+        try {
+            subscriber.onChanges(events);
+        } catch (RuntimeException e) {
+            log.warn("change subscriber {} failed", subscriber, e);
+        }
+    }
+}
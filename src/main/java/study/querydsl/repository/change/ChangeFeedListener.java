@@ -0,0 +1,47 @@
+package study.querydsl.repository.change;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.test.Forest;
+import study.querydsl.entity.test.Leaf;
+import study.querydsl.entity.test.Tree;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+@Component
+@RequiredArgsConstructor
+public class ChangeFeedListener {
+
+    private final ChangeFeed changeFeed;
+
+    @PostPersist
+    @PostUpdate
+    public void onChange(Object entity){
+        changeFeed.upserted(entity.getClass(), idOf(entity));
+    }
+
+    @PostRemove
+    public void onRemove(Object entity){
+        changeFeed.deleted(entity.getClass(), idOf(entity));
+    }
+
+    private Long idOf(Object entity){
+        if(entity instanceof Member){
+            return ((Member) entity).getId();
+        }
+        if(entity instanceof Team){
+            return ((Team) entity).getId();
+        }
+        if(entity instanceof Forest){
+            return ((Forest) entity).getId();
+        }
+        if(entity instanceof Tree){
+            return ((Tree) entity).getId();
+        }
+        return ((Leaf) entity).getId();
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.repository.change;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+
+import javax.persistence.EntityManager;
+
+//벌크 update/delete 는 엔티티 리스너를 거치지 않으므로, 실행될 때 대상 엔티티 타입의 BULK 변경을 변경 피드에 알린다.
+//앱의 JPAQueryFactory 빈이 이 클래스라서 queryFactory.update/delete 는 따로 알리지 않아도 된다.
+//EntityManager 로 직접 실행하는 JPQL/네이티브 DML 과 JDBC 쓰기는 여기를 지나지 않으므로 호출하는 쪽에서 bulkChanged 를 부른다
+public class ChangePublishingQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager em;
+    private final ChangeFeed changeFeed;
+
+    public ChangePublishingQueryFactory(EntityManager em, ChangeFeed changeFeed) {
+        super(em);
+        this.em = em;
+        this.changeFeed = changeFeed;
+    }
+
+    @Override
+    public JPAUpdateClause update(EntityPath<?> path) {
+        return new JPAUpdateClause(em, path) {
+            @Override
+            public long execute() {
+                long count = super.execute();
+                changeFeed.bulkChanged(path.getType());
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public JPADeleteClause delete(EntityPath<?> path) {
+        return new JPADeleteClause(em, path) {
+            @Override
+            public long execute() {
+                long count = super.execute();
+                changeFeed.bulkChanged(path.getType());
+                return count;
+            }
+        };
+    }
+}
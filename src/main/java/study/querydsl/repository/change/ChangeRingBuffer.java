@@ -0,0 +1,65 @@
+package study.querydsl.repository.change;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+//여러 생산자, 단일 소비자용 고정 크기 링 버퍼
+class ChangeRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    ChangeRingBuffer(int capacity) {
+        if(capacity <= 0 || Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    boolean offer(ChangeEvent event){
+        while(true){
+            long t = tail.get();
+            if(t - head.get() >= capacity){
+                return false;
+            }
+            if(tail.compareAndSet(t, t + 1)){
+                slots.lazySet((int) (t & mask), event);
+                return true;
+            }
+        }
+    }
+
+    //소비자 스레드에서만 호출
+    int drain(Consumer<ChangeEvent> sink, int max){
+        long h = head.get();
+        int drained = 0;
+        while(drained < max){
+            int index = (int) (h & mask);
+            ChangeEvent event = slots.get(index);
+            //자리를 잡았지만 아직 쓰지 않은 생산자가 있으면 순서를 지키기 위해 멈춘다
+            if(event == null){
+                break;
+            }
+            slots.lazySet(index, null);
+            sink.accept(event);
+            h++;
+            drained++;
+        }
+        head.lazySet(h);
+        return drained;
+    }
+
+    int size(){
+        return (int) (tail.get() - head.get());
+    }
+
+    int capacity(){
+        return capacity;
+    }
+}
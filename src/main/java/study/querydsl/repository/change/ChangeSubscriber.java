@@ -0,0 +1,9 @@
+package study.querydsl.repository.change;
+
+import java.util.List;
+
+public interface ChangeSubscriber {
+
+    //커밋된 변경이 중복 제거된 묶음으로 전달된다
+    void onChanges(List<ChangeEvent> events);
+}
@@ -0,0 +1,5 @@
+package study.querydsl.repository.change;
+
+public enum ChangeType {
+    UPSERT, DELETE, BULK
+}
@@ -0,0 +1,6 @@
+package study.querydsl.repository.change;
+
+//커밋한 스레드에서 afterCompletion 안에 바로 호출되는 구독자.
+//커밋이 끝나기 전에 반영돼야 하는 가벼운 무효화에만 쓰고, DB 를 읽거나 오래 걸리는 일은 하지 않는다
+public interface SynchronousChangeSubscriber extends ChangeSubscriber {
+}
@@ -0,0 +1,174 @@
+package study.querydsl.repository.hierarchy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.test.Forest;
+import study.querydsl.entity.test.HierarchyNodeType;
+import study.querydsl.entity.test.Leaf;
+import study.querydsl.entity.test.Tree;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+//엔티티 콜백에서는 쿼리를 실행할 수 없으므로 변경된 노드를 모아 두었다가 커밋 직전에 클로저 테이블을 맞춘다
+//콜백은 커밋 시점 flush 에서야 불리는 경우가 많아 스프링 beforeCommit 대신 하이버네이트 커밋 전 처리로 등록한다
+@Slf4j
+@Component
+public class ForestHierarchyIndexer {
+
+    private final boolean enabled;
+    private final ForestHierarchyRepository repository;
+    private final EntityManager em;
+
+    public ForestHierarchyIndexer(@Value("${forest.hierarchy-index.enabled:false}") boolean enabled,
+                                  ForestHierarchyRepository repository,
+                                  EntityManager em) {
+        this.enabled = enabled;
+        this.repository = repository;
+        this.em = em;
+    }
+
+    //@PostPersist 로 들어온 노드는 아직 색인에 없으므로 커밋 때 확인 없이 바로 넣는다
+    public void created(Object entity){
+        track(entity, false, true);
+    }
+
+    //이름만 바뀐 경우처럼 부모가 그대로면 색인을 건드리지 않는다.
+    //flush 중 갱신 직전에 불리므로 영속성 컨텍스트에는 아직 읽어 온 값이 남아 있다
+    public void updating(Object entity){
+        if(!enabled || typeOf(entity) == HierarchyNodeType.FOREST){
+            return;
+        }
+        EntityEntry entry = em.unwrap(SessionImplementor.class).getPersistenceContext().getEntry(entity);
+        if(entry != null && Objects.equals(idOf(entry.getLoadedValue(parentPropertyOf(entity))), idOf(parentOf(entity)))){
+            return;
+        }
+        track(entity, false, false);
+    }
+
+    public void removed(Object entity){
+        track(entity, true, false);
+    }
+
+    private void track(Object entity, boolean removed, boolean created){
+        if(!enabled){
+            return;
+        }
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            log.warn("hierarchy change outside of a transaction is not indexed: {}", entity);
+            return;
+        }
+        //id 는 엔티티 사이에 겹칠 수 있으므로 타입별로 모은다. 같은 트랜잭션에서 만든 노드는 나중에 부모가 바뀌어도 새 노드다
+        pendingChanges()
+                .computeIfAbsent(typeOf(entity), type -> new LinkedHashMap<>())
+                .merge(idOf(entity), new NodeChange(entity, removed, created),
+                        (before, after) -> after.removed ? after : new NodeChange(after.entity, false, before.created || after.created));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<HierarchyNodeType, Map<Long, NodeChange>> pendingChanges(){
+        Map<HierarchyNodeType, Map<Long, NodeChange>> pending =
+                (Map<HierarchyNodeType, Map<Long, NodeChange>>) TransactionSynchronizationManager.getResource(this);
+        if(pending == null){
+            Map<HierarchyNodeType, Map<Long, NodeChange>> changes = new EnumMap<>(HierarchyNodeType.class);
+            TransactionSynchronizationManager.bindResource(this, changes);
+            em.unwrap(SessionImplementor.class).getActionQueue()
+                    .registerProcess(session -> apply(changes));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ForestHierarchyIndexer.this);
+                }
+            });
+            pending = changes;
+        }
+        return pending;
+    }
+
+    private void apply(Map<HierarchyNodeType, Map<Long, NodeChange>> changes){
+        while(true){
+            //아직 flush 되지 않은 엔티티의 콜백이 여기서 마저 들어온다
+            em.flush();
+            if(changes.isEmpty()){
+                return;
+            }
+            //EnumMap 은 선언 순서대로 돌므로 부모가 먼저 색인된다
+            Map<HierarchyNodeType, Map<Long, NodeChange>> batch = new EnumMap<>(changes);
+            changes.clear();
+            batch.forEach(this::apply);
+        }
+    }
+
+    private void apply(HierarchyNodeType type, Map<Long, NodeChange> nodes){
+        //새 노드는 부모별로 모아 부모들의 경로를 한 번에 읽는다
+        Map<Long, List<Long>> createdByParent = new LinkedHashMap<>();
+        for(Map.Entry<Long, NodeChange> node : nodes.entrySet()){
+            Long id = node.getKey();
+            NodeChange change = node.getValue();
+            if(change.removed){
+                repository.removeNode(type, id);
+                continue;
+            }
+            Long parentId = idOf(parentOf(change.entity));
+            if(change.created || !repository.isIndexed(type, id)){
+                createdByParent.computeIfAbsent(parentId, p -> new ArrayList<>()).add(id);
+            } else if(!Objects.equals(repository.parentOf(type, id), parentId)){
+                repository.moveNode(type, id, parentId);
+            }
+        }
+        if(!createdByParent.isEmpty()){
+            repository.insertNodes(type, createdByParent);
+        }
+    }
+
+    private static HierarchyNodeType typeOf(Object entity){
+        if(entity instanceof Forest){
+            return HierarchyNodeType.FOREST;
+        }
+        if(entity instanceof Tree){
+            return HierarchyNodeType.TREE;
+        }
+        return HierarchyNodeType.LEAF;
+    }
+
+    //프록시여도 초기화하지 않고 id 를 꺼낸다
+    private Long idOf(Object entity){
+        return entity != null ? (Long) em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity) : null;
+    }
+
+    private static Object parentOf(Object entity){
+        if(entity instanceof Tree){
+            return ((Tree) entity).getForest();
+        }
+        if(entity instanceof Leaf){
+            return ((Leaf) entity).getTree();
+        }
+        return null;
+    }
+
+    private static String parentPropertyOf(Object entity){
+        return entity instanceof Tree ? "forest" : "tree";
+    }
+
+    private static class NodeChange {
+        private final Object entity;
+        private final boolean removed;
+        private final boolean created;
+
+        NodeChange(Object entity, boolean removed, boolean created) {
+            this.entity = entity;
+            this.removed = removed;
+            this.created = created;
+        }
+    }
+}
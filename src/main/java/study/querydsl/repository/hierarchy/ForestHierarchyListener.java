@@ -0,0 +1,32 @@
+package study.querydsl.repository.hierarchy;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PreUpdate;
+
+@Component
+@RequiredArgsConstructor
+public class ForestHierarchyListener {
+
+    //인덱서는 EntityManager 를 쓰므로 EntityManagerFactory 생성 중에 만들지 않도록 늦게 꺼낸다
+    private final ObjectProvider<ForestHierarchyIndexer> indexer;
+
+    @PostPersist
+    public void onPersist(Object entity){
+        indexer.getObject().created(entity);
+    }
+
+    @PreUpdate
+    public void onUpdate(Object entity){
+        indexer.getObject().updating(entity);
+    }
+
+    @PostRemove
+    public void onRemove(Object entity){
+        indexer.getObject().removed(entity);
+    }
+}
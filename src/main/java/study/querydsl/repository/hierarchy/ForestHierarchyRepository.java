@@ -0,0 +1,250 @@
+package study.querydsl.repository.hierarchy;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.EnumPath;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.HierarchyNodeDto;
+import study.querydsl.dto.QHierarchyNodeDto;
+import study.querydsl.entity.test.HierarchyNodeType;
+import study.querydsl.entity.test.HierarchyPath;
+import study.querydsl.entity.test.Leaf;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.test.QForest.forest;
+import static study.querydsl.entity.test.QHierarchyPath.hierarchyPath;
+import static study.querydsl.entity.test.QLeaf.leaf;
+import static study.querydsl.entity.test.QTree.tree;
+
+//클로저 테이블로 깊이와 상관없이 조상/자손을 쿼리 한 번에 찾는다
+@Repository
+@RequiredArgsConstructor
+public class ForestHierarchyRepository {
+
+    private static final int FLUSH_SIZE = 1000;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+
+    public List<HierarchyNodeDto> descendantsOf(HierarchyNodeType type, Long nodeId){
+        return queryFactory
+                .select(new QHierarchyNodeDto(hierarchyPath.descendantType, hierarchyPath.descendantId, hierarchyPath.depth))
+                .from(hierarchyPath)
+                .where(ancestorIs(type, nodeId),
+                        hierarchyPath.depth.gt(0))
+                .orderBy(hierarchyPath.depth.asc(), hierarchyPath.descendantType.asc(), hierarchyPath.descendantId.asc())
+                .fetch();
+    }
+
+    public List<HierarchyNodeDto> ancestorsOf(HierarchyNodeType type, Long nodeId){
+        return queryFactory
+                .select(new QHierarchyNodeDto(hierarchyPath.ancestorType, hierarchyPath.ancestorId, hierarchyPath.depth))
+                .from(hierarchyPath)
+                .where(descendantIs(type, nodeId),
+                        hierarchyPath.depth.gt(0))
+                .orderBy(hierarchyPath.depth.asc())
+                .fetch();
+    }
+
+    public List<Leaf> leavesUnder(HierarchyNodeType type, Long nodeId){
+        return queryFactory
+                .selectFrom(leaf)
+                .join(hierarchyPath).on(hierarchyPath.descendantId.eq(leaf.id),
+                        hierarchyPath.descendantType.eq(HierarchyNodeType.LEAF))
+                .where(ancestorIs(type, nodeId),
+                        hierarchyPath.depth.gt(0))
+                .orderBy(leaf.id.asc())
+                .fetch();
+    }
+
+    boolean isIndexed(HierarchyNodeType type, Long nodeId){
+        return queryFactory
+                .selectOne()
+                .from(hierarchyPath)
+                .where(descendantIs(type, nodeId),
+                        hierarchyPath.depth.eq(0))
+                .fetchFirst() != null;
+    }
+
+    Long parentOf(HierarchyNodeType type, Long nodeId){
+        return queryFactory
+                .select(hierarchyPath.ancestorId)
+                .from(hierarchyPath)
+                .where(descendantIs(type, nodeId),
+                        hierarchyPath.depth.eq(1))
+                .fetchFirst();
+    }
+
+    //부모 id -> 새 노드 id 목록. 부모가 없는 노드는 null 키로 온다
+    void insertNodes(HierarchyNodeType type, Map<Long, List<Long>> nodeIdsByParent){
+        Map<Long, List<HierarchyPath>> ancestorsByParent = pathsTo(type.parent(), nodeIdsByParent.keySet());
+        nodeIdsByParent.forEach((parentId, nodeIds) -> {
+            List<HierarchyPath> ancestors = ancestorsByParent.getOrDefault(parentId, List.of());
+            for(Long nodeId : nodeIds){
+                em.persist(new HierarchyPath(type, nodeId, type, nodeId, 0));
+                for(HierarchyPath ancestor : ancestors){
+                    em.persist(new HierarchyPath(ancestor.getAncestorType(), ancestor.getAncestorId(), type, nodeId, ancestor.getDepth() + 1));
+                }
+            }
+        });
+    }
+
+    //서브트리 바깥 조상(옮기는 노드의 조상)과의 경로만 끊고 새 부모의 조상과 서브트리를 다시 잇는다
+    void moveNode(HierarchyNodeType type, Long nodeId, Long newParentId){
+        List<HierarchyPath> subtree = queryFactory
+                .selectFrom(hierarchyPath)
+                .where(ancestorIs(type, nodeId))
+                .fetch();
+        List<HierarchyPath> oldAncestors = queryFactory
+                .selectFrom(hierarchyPath)
+                .where(descendantIs(type, nodeId),
+                        hierarchyPath.depth.gt(0))
+                .fetch();
+
+        if(!oldAncestors.isEmpty()){
+            queryFactory
+                    .delete(hierarchyPath)
+                    .where(nodeIn(hierarchyPath.descendantType, hierarchyPath.descendantId,
+                                    idsByType(subtree, HierarchyPath::getDescendantType, HierarchyPath::getDescendantId)),
+                            nodeIn(hierarchyPath.ancestorType, hierarchyPath.ancestorId,
+                                    idsByType(oldAncestors, HierarchyPath::getAncestorType, HierarchyPath::getAncestorId)))
+                    .execute();
+        }
+
+        if(newParentId == null){
+            return;
+        }
+        for(HierarchyPath ancestor : pathsTo(type.parent(), newParentId)){
+            for(HierarchyPath descendant : subtree){
+                em.persist(new HierarchyPath(ancestor.getAncestorType(), ancestor.getAncestorId(),
+                        descendant.getDescendantType(), descendant.getDescendantId(),
+                        ancestor.getDepth() + descendant.getDepth() + 1));
+            }
+        }
+    }
+
+    void removeNode(HierarchyNodeType type, Long nodeId){
+        queryFactory
+                .delete(hierarchyPath)
+                .where(descendantIs(type, nodeId).or(ancestorIs(type, nodeId)))
+                .execute();
+    }
+
+    //인덱스를 켜기 전에 있던 데이터를 채우거나 어긋난 인덱스를 다시 만든다
+    @Transactional
+    public int rebuild(){
+        queryFactory.delete(hierarchyPath).execute();
+
+        //숲, 나무, 잎의 id 는 서로 겹칠 수 있으므로 타입별로 따로 담는다
+        List<Long> forestIds = queryFactory.select(forest.id).from(forest).fetch();
+        Map<Long, Long> forestOfTree = new HashMap<>();
+        for(Tuple row : queryFactory.select(tree.id, tree.forest.id).from(tree).fetch()){
+            forestOfTree.put(row.get(tree.id), row.get(tree.forest.id));
+        }
+        Map<Long, Long> treeOfLeaf = new LinkedHashMap<>();
+        for(Tuple row : queryFactory.select(leaf.id, leaf.tree.id).from(leaf).fetch()){
+            treeOfLeaf.put(row.get(leaf.id), row.get(leaf.tree.id));
+        }
+
+        int paths = 0;
+        for(Long forestId : forestIds){
+            paths = persist(new HierarchyPath(HierarchyNodeType.FOREST, forestId, HierarchyNodeType.FOREST, forestId, 0), paths);
+        }
+        for(Map.Entry<Long, Long> node : forestOfTree.entrySet()){
+            Long treeId = node.getKey();
+            paths = persist(new HierarchyPath(HierarchyNodeType.TREE, treeId, HierarchyNodeType.TREE, treeId, 0), paths);
+            if(node.getValue() != null){
+                paths = persist(new HierarchyPath(HierarchyNodeType.FOREST, node.getValue(), HierarchyNodeType.TREE, treeId, 1), paths);
+            }
+        }
+        for(Map.Entry<Long, Long> node : treeOfLeaf.entrySet()){
+            Long leafId = node.getKey();
+            Long treeId = node.getValue();
+            paths = persist(new HierarchyPath(HierarchyNodeType.LEAF, leafId, HierarchyNodeType.LEAF, leafId, 0), paths);
+            if(treeId == null){
+                continue;
+            }
+            paths = persist(new HierarchyPath(HierarchyNodeType.TREE, treeId, HierarchyNodeType.LEAF, leafId, 1), paths);
+            Long forestId = forestOfTree.get(treeId);
+            if(forestId != null){
+                paths = persist(new HierarchyPath(HierarchyNodeType.FOREST, forestId, HierarchyNodeType.LEAF, leafId, 2), paths);
+            }
+        }
+        return paths;
+    }
+
+    private int persist(HierarchyPath path, int paths){
+        em.persist(path);
+        if(++paths % FLUSH_SIZE == 0){
+            em.flush();
+            em.clear();
+        }
+        return paths;
+    }
+
+    //노드마다 조회하지 않도록 FLUSH_SIZE 개씩 IN 으로 읽어 노드별로 나눈다
+    private Map<Long, List<HierarchyPath>> pathsTo(HierarchyNodeType type, Collection<Long> nodeIds){
+        List<Long> ids = nodeIds.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        Map<Long, List<HierarchyPath>> paths = new HashMap<>();
+        if(type == null){
+            return paths;
+        }
+        for(int from = 0; from < ids.size(); from += FLUSH_SIZE){
+            queryFactory
+                    .selectFrom(hierarchyPath)
+                    .where(hierarchyPath.descendantType.eq(type),
+                            hierarchyPath.descendantId.in(ids.subList(from, Math.min(from + FLUSH_SIZE, ids.size()))))
+                    .fetch()
+                    .forEach(path -> paths.computeIfAbsent(path.getDescendantId(), id -> new ArrayList<>()).add(path));
+        }
+        return paths;
+    }
+
+    private List<HierarchyPath> pathsTo(HierarchyNodeType type, Long nodeId){
+        return queryFactory
+                .selectFrom(hierarchyPath)
+                .where(descendantIs(type, nodeId))
+                .fetch();
+    }
+
+    private static BooleanExpression ancestorIs(HierarchyNodeType type, Long nodeId){
+        return hierarchyPath.ancestorType.eq(type).and(hierarchyPath.ancestorId.eq(nodeId));
+    }
+
+    private static BooleanExpression descendantIs(HierarchyNodeType type, Long nodeId){
+        return hierarchyPath.descendantType.eq(type).and(hierarchyPath.descendantId.eq(nodeId));
+    }
+
+    //(type = ? and id in (...)) 를 타입마다 만들어 or 로 잇는다
+    private static Predicate nodeIn(EnumPath<HierarchyNodeType> typePath, NumberPath<Long> idPath,
+                                    Map<HierarchyNodeType, List<Long>> idsByType){
+        BooleanBuilder builder = new BooleanBuilder();
+        idsByType.forEach((type, ids) -> builder.or(typePath.eq(type).and(idPath.in(ids))));
+        return builder;
+    }
+
+    private static Map<HierarchyNodeType, List<Long>> idsByType(List<HierarchyPath> paths,
+                                                                 Function<HierarchyPath, HierarchyNodeType> type,
+                                                                 Function<HierarchyPath, Long> id){
+        return paths.stream().collect(Collectors.groupingBy(type,
+                () -> new EnumMap<>(HierarchyNodeType.class),
+                Collectors.mapping(id, Collectors.toList())));
+    }
+}
@@ -0,0 +1,162 @@
+package study.querydsl.repository.memory;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.StringCollation;
+import study.querydsl.repository.support.TransactionState;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.search.in-memory.enabled", havingValue = "true")
+public class InMemoryMemberSearch implements DisposableBean {
+
+    private final EntityManagerFactory emf;
+    private final StringCollation collation;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MemberColumnStore store;
+    //적재 중에 들어온 변경은 새 저장소로 교체한 뒤 다시 적용
+    private List<Consumer<MemberColumnStore>> pending;
+
+    public InMemoryMemberSearch(EntityManagerFactory emf, StringCollation collation) {
+        this.emf = emf;
+        this.collation = collation;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reloadAsync(){
+        loader.execute(this::reload);
+    }
+
+    public synchronized void reload(){
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        MemberColumnStore loaded = load();
+
+        lock.writeLock().lock();
+        try {
+            pending.forEach(change -> change.accept(loaded));
+            pending = null;
+            //적재 중에 지워진 행까지 걷어낸다
+            loaded.compact();
+            store = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("in-memory member store loaded: {} members", loaded.size());
+    }
+
+    public Optional<List<MemberTeamDto>> search(MemberSearchCondition condition){
+        //하위 타입의 조건이나 커밋 전 데이터가 보여야 하는 경우는 DB 로 조회
+        if(condition.getClass() != MemberSearchCondition.class || TransactionState.inReadWriteTransaction()){
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            if(store == null || pending != null || !store.canSearch(condition)){
+                return Optional.empty();
+            }
+            return Optional.of(store.search(condition));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void memberChanged(Member changed){
+        Long id = changed.getId();
+        String username = changed.getUsername();
+        int age = changed.getAge();
+        Long teamId = changed.getTeam() != null ? changed.getTeam().getId() : null;
+        apply(store -> store.putMember(id, username, age, teamId));
+    }
+
+    public void memberRemoved(Member removed){
+        Long id = removed.getId();
+        apply(store -> store.removeMember(id));
+    }
+
+    public void teamChanged(Team changed){
+        Long id = changed.getId();
+        String name = changed.getName();
+        apply(store -> store.putTeam(id, name));
+    }
+
+    public void teamRemoved(Team removed){
+        Long id = removed.getId();
+        apply(store -> store.removeTeam(id));
+    }
+
+    private void apply(Consumer<MemberColumnStore> change){
+        TransactionState.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if(pending != null){
+                    pending.add(change);
+                }
+                if(store != null){
+                    change.accept(store);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private MemberColumnStore load(){
+        MemberColumnStore loaded = new MemberColumnStore(collation);
+        EntityManager em = emf.createEntityManager();
+        try {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            for(Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()){
+                loaded.putTeam(row.get(team.id), row.get(team.name));
+            }
+            List<Tuple> members = queryFactory
+                    .select(member.id, member.username, member.age, member.team.id)
+                    .from(member)
+                    .orderBy(member.id.asc())
+                    .fetch();
+            for(Tuple row : members){
+                loaded.putMember(row.get(member.id), row.get(member.username),
+                        row.get(member.age), row.get(member.team.id));
+            }
+        } finally {
+            em.close();
+        }
+        return loaded;
+    }
+
+    @Override
+    public void destroy() {
+        loader.shutdownNow();
+    }
+}
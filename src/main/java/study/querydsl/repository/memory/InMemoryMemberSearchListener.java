@@ -0,0 +1,41 @@
+package study.querydsl.repository.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+@Component
+@RequiredArgsConstructor
+public class InMemoryMemberSearchListener {
+
+    private final ObjectProvider<InMemoryMemberSearch> inMemorySearch;
+
+    @PostPersist
+    @PostUpdate
+    public void onChange(Object entity){
+        inMemorySearch.ifAvailable(search -> {
+            if(entity instanceof Member){
+                search.memberChanged((Member) entity);
+            } else if(entity instanceof Team){
+                search.teamChanged((Team) entity);
+            }
+        });
+    }
+
+    @PostRemove
+    public void onRemove(Object entity){
+        inMemorySearch.ifAvailable(search -> {
+            if(entity instanceof Member){
+                search.memberRemoved((Member) entity);
+            } else if(entity instanceof Team){
+                search.teamRemoved((Team) entity);
+            }
+        });
+    }
+}
@@ -0,0 +1,196 @@
+package study.querydsl.repository.memory;
+
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.StringCollation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//회원 컬럼을 기본형 배열로 저장하고 username/team 은 비트맵 인덱스로 찾는다 (동기화는 호출하는 쪽에서).
+//문자열은 DB 콜레이션이 같게 보는 값끼리 같은 키로 찾는다
+class MemberColumnStore {
+
+    private static final long NO_TEAM = -1L;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StringCollation collation;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private int[] usernameCodes = new int[INITIAL_CAPACITY];
+    private String[] usernames = new String[INITIAL_CAPACITY];
+    private long[] teamIds = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private BitSet live = new BitSet();
+    private Map<Long, Integer> rowById = new HashMap<>();
+
+    private Map<String, Integer> usernameDictionary = new HashMap<>();
+    private Map<Integer, BitSet> usernameIndex = new HashMap<>();
+    private Map<Long, BitSet> teamIndex = new HashMap<>();
+    private final Map<Long, String> teamNames = new HashMap<>();
+
+    MemberColumnStore(StringCollation collation) {
+        this.collation = collation;
+    }
+
+    void putTeam(Long teamId, String name){
+        teamNames.put(teamId, name);
+    }
+
+    void removeTeam(Long teamId){
+        teamNames.remove(teamId);
+    }
+
+    void putMember(Long id, String username, int age, Long teamId){
+        Integer row = rowById.get(id);
+        if(row == null){
+            row = append(id);
+        } else {
+            unindex(row);
+        }
+        ages[row] = age;
+        usernames[row] = username;
+        usernameCodes[row] = encode(username);
+        teamIds[row] = teamId != null ? teamId : NO_TEAM;
+        index(row);
+    }
+
+    void removeMember(Long id){
+        Integer row = rowById.remove(id);
+        if(row != null){
+            unindex(row);
+            live.clear(row);
+            usernames[row] = null;
+        }
+        //지운 행이 살아 있는 행보다 많아지면 배열을 다시 채운다
+        if(size > INITIAL_CAPACITY && size - rowById.size() > rowById.size()){
+            compact();
+        }
+    }
+
+    int size(){
+        return rowById.size();
+    }
+
+    int capacity(){
+        return ids.length;
+    }
+
+    //콜레이션이 바이너리가 아니면 악센트 무시까지는 맞추지 못하므로 ASCII 가 아닌 문자열 조건은 DB 로 보낸다
+    boolean canSearch(MemberSearchCondition condition){
+        return collation.isBinary() || (isAscii(condition.getUsername()) && isAscii(condition.getTeamName()));
+    }
+
+    List<MemberTeamDto> search(MemberSearchCondition condition){
+        BitSet rows = (BitSet) live.clone();
+
+        if(StringUtils.hasText(condition.getUsername())){
+            Integer code = usernameDictionary.get(collation.keyOf(condition.getUsername()));
+            rows.and(code != null ? usernameIndex.get(code) : new BitSet());
+        }
+        if(StringUtils.hasText(condition.getTeamName())){
+            String teamKey = collation.keyOf(condition.getTeamName());
+            BitSet teamRows = new BitSet();
+            teamNames.forEach((teamId, name) -> {
+                if(name != null && collation.keyOf(name).equals(teamKey) && teamIndex.containsKey(teamId)){
+                    teamRows.or(teamIndex.get(teamId));
+                }
+            });
+            rows.and(teamRows);
+        }
+
+        int ageGoe = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+        int ageLoe = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        for(int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)){
+            int age = ages[row];
+            if(age < ageGoe || age > ageLoe){
+                continue;
+            }
+            Long teamId = teamIds[row] != NO_TEAM ? teamIds[row] : null;
+            result.add(new MemberTeamDto(ids[row], usernames[row], age,
+                    teamId, teamId != null ? teamNames.get(teamId) : null));
+        }
+        return result;
+    }
+
+    private int append(Long id){
+        if(size == ids.length){
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+            usernames = Arrays.copyOf(usernames, capacity);
+            teamIds = Arrays.copyOf(teamIds, capacity);
+        }
+        int row = size++;
+        ids[row] = id;
+        rowById.put(id, row);
+        live.set(row);
+        return row;
+    }
+
+    //지운 행과 더는 쓰지 않는 username 코드를 걷어내고 살아 있는 행만 앞에서부터 다시 채운다
+    void compact(){
+        long[] oldIds = ids;
+        int[] oldAges = ages;
+        String[] oldUsernames = usernames;
+        long[] oldTeamIds = teamIds;
+        BitSet oldLive = live;
+
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, rowById.size())) * 2);
+        ids = new long[capacity];
+        ages = new int[capacity];
+        usernameCodes = new int[capacity];
+        usernames = new String[capacity];
+        teamIds = new long[capacity];
+        size = 0;
+        live = new BitSet();
+        rowById = new HashMap<>();
+        usernameDictionary = new HashMap<>();
+        usernameIndex = new HashMap<>();
+        teamIndex = new HashMap<>();
+
+        for(int old = oldLive.nextSetBit(0); old >= 0; old = oldLive.nextSetBit(old + 1)){
+            int row = append(oldIds[old]);
+            ages[row] = oldAges[old];
+            usernames[row] = oldUsernames[old];
+            usernameCodes[row] = encode(oldUsernames[old]);
+            teamIds[row] = oldTeamIds[old];
+            index(row);
+        }
+    }
+
+    //같은 코드는 같은 콜레이션 키. 행마다 원래 값은 usernames 에 따로 둔다
+    private int encode(String username){
+        return usernameDictionary.computeIfAbsent(collation.keyOf(username), key -> usernameDictionary.size());
+    }
+
+    private static boolean isAscii(String value){
+        return value == null || value.chars().allMatch(c -> c < 0x80);
+    }
+
+    private void index(int row){
+        usernameIndex.computeIfAbsent(usernameCodes[row], code -> new BitSet()).set(row);
+        teamIndex.computeIfAbsent(teamIds[row], teamId -> new BitSet()).set(row);
+    }
+
+    private void unindex(int row){
+        BitSet byUsername = usernameIndex.get(usernameCodes[row]);
+        if(byUsername != null){
+            byUsername.clear(row);
+        }
+        BitSet byTeam = teamIndex.get(teamIds[row]);
+        if(byTeam != null){
+            byTeam.clear(row);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package study.querydsl.repository.scan;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.ScanPartitionReport;
+import study.querydsl.dto.ScanReport;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//배치 작업용 전체 회원 스캔. member_id 범위를 나눠 파티션마다 별도 EntityManager 로 키셋 조회하고,
+//읽은 청크는 크기가 정해진 큐를 거쳐 호출한 스레드의 processor 로 넘긴다. 큐가 차면 읽는 쪽이 기다린다
+@Slf4j
+@Component
+public class MemberParallelScanner implements DisposableBean {
+
+    private final EntityManagerFactory emf;
+    private final ExecutorService executor;
+    private final int threads;
+    private final int partitionsPerThread;
+    private final int chunkSize;
+    private final int queueCapacity;
+
+    public MemberParallelScanner(EntityManagerFactory emf,
+                                 @Value("${member.scan.threads:4}") int threads,
+                                 @Value("${member.scan.partitions-per-thread:4}") int partitionsPerThread,
+                                 @Value("${member.scan.chunk-size:500}") int chunkSize,
+                                 @Value("${member.scan.queue-capacity:8}") int queueCapacity) {
+        this.emf = emf;
+        this.threads = threads;
+        this.partitionsPerThread = partitionsPerThread;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    //processor 는 호출한 스레드 하나에서만 불리므로 스레드 안전할 필요가 없다.
+    //엔티티를 프로젝션하면 준영속 상태로 넘어가므로 필요한 값은 DTO 로 뽑는 편이 낫다
+    public <T> ScanReport scan(Expression<T> projection, Predicate where, Consumer<List<T>> processor){
+        long started = System.nanoTime();
+        List<long[]> ranges = partitions(where);
+        BlockingQueue<Chunk<T>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        List<Future<ScanPartitionReport>> futures = new ArrayList<>();
+        for(int i = 0; i < ranges.size(); i++){
+            int partition = i;
+            long[] range = ranges.get(i);
+            futures.add(executor.submit(() -> scanPartition(partition, range[0], range[1], projection, where, queue, cancelled)));
+        }
+
+        boolean completed = false;
+        try {
+            long rows = 0;
+            int remaining = ranges.size();
+            while(remaining > 0){
+                Chunk<T> chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+                if(chunk == null){
+                    //오류 청크를 남기지 못하고 끝난 파티션이 있으면 여기서 드러난다
+                    for(Future<ScanPartitionReport> future : futures){
+                        if(future.isDone()){
+                            future.get();
+                        }
+                    }
+                    continue;
+                }
+                if(chunk.error != null){
+                    throw chunk.error;
+                }
+                if(chunk.rows == null){
+                    remaining--;
+                    continue;
+                }
+                processor.accept(chunk.rows);
+                rows += chunk.rows.size();
+            }
+            List<ScanPartitionReport> reports = new ArrayList<>();
+            for(Future<ScanPartitionReport> future : futures){
+                reports.add(future.get());
+            }
+            completed = true;
+            ScanReport report = new ScanReport(rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), reports);
+            log.info("member scan: {} rows in {}ms over {} partitions ({} rows/s)",
+                    report.getRows(), report.getElapsedMillis(), reports.size(), (long) report.getRowsPerSecond());
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("member scan interrupted", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if(!completed){
+                cancelled.set(true);
+                futures.forEach(f -> f.cancel(true));
+            }
+        }
+    }
+
+    //id 구간을 스레드 수보다 잘게 나눠 먼저 끝난 스레드가 다음 파티션을 가져가게 한다
+    private List<long[]> partitions(Predicate where){
+        EntityManager em = emf.createEntityManager();
+        try {
+            Tuple bounds = new JPAQueryFactory(em)
+                    .select(member.id.min(), member.id.max())
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(where)
+                    .fetchOne();
+            Long min = bounds != null ? bounds.get(member.id.min()) : null;
+            Long max = bounds != null ? bounds.get(member.id.max()) : null;
+            if(min == null || max == null){
+                return Collections.emptyList();
+            }
+            long count = Math.min((long) threads * partitionsPerThread, max - min + 1);
+            long width = (max - min + count) / count;
+            List<long[]> ranges = new ArrayList<>();
+            for(long from = min; from <= max; from += width){
+                ranges.add(new long[]{from, Math.min(max, from + width - 1)});
+            }
+            return ranges;
+        } finally {
+            em.close();
+        }
+    }
+
+    private <T> ScanPartitionReport scanPartition(int partition, long fromId, long toId, Expression<T> projection,
+                                                  Predicate where, BlockingQueue<Chunk<T>> queue,
+                                                  AtomicBoolean cancelled) throws InterruptedException {
+        long started = System.nanoTime();
+        long blocked = 0;
+        long rows = 0;
+        int chunks = 0;
+        EntityManager em = emf.createEntityManager();
+        try {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            long cursor = fromId - 1;
+            while(!cancelled.get()){
+                List<Tuple> tuples = queryFactory
+                        .select(member.id, projection)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(where, member.id.gt(cursor), member.id.loe(toId))
+                        .orderBy(member.id.asc())
+                        .limit(chunkSize)
+                        .setHint(QueryHints.READ_ONLY, true)
+                        .fetch();
+                if(tuples.isEmpty()){
+                    break;
+                }
+                List<T> chunk = new ArrayList<>(tuples.size());
+                for(Tuple tuple : tuples){
+                    chunk.add(tuple.get(projection));
+                }
+                cursor = tuples.get(tuples.size() - 1).get(member.id);
+                //다음 청크를 읽기 전에 비워서 파티션마다 청크 하나만큼만 들고 있는다
+                em.clear();
+
+                long waitStarted = System.nanoTime();
+                put(queue, new Chunk<>(chunk, null), cancelled);
+                blocked += System.nanoTime() - waitStarted;
+                rows += chunk.size();
+                chunks++;
+                if(tuples.size() < chunkSize){
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            put(queue, new Chunk<>(null, e), cancelled);
+            throw e;
+        } finally {
+            em.close();
+        }
+
+        ScanPartitionReport report = new ScanPartitionReport(partition, fromId, toId, rows, chunks,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), TimeUnit.NANOSECONDS.toMillis(blocked));
+        log.debug("member scan partition: {}", report);
+        put(queue, new Chunk<>(null, null), cancelled);
+        return report;
+    }
+
+    //스캔이 취소되면 더 이상 받아 갈 쪽이 없으므로 기다리지 않고 빠져나온다
+    private <T> void put(BlockingQueue<Chunk<T>> queue, Chunk<T> chunk, AtomicBoolean cancelled) throws InterruptedException {
+        while(!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)){
+            if(cancelled.get()){
+                throw new CancellationException("member scan cancelled");
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    //rows 와 error 가 모두 null 이면 파티션 끝
+    private static class Chunk<T> {
+        private final List<T> rows;
+        private final RuntimeException error;
+
+        Chunk(List<T> rows, RuntimeException error) {
+            this.rows = rows;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package study.querydsl.repository.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.util.Assert;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryCountInspector;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+//team_id 기준으로 회원/팀을 여러 DB 에 나누어 저장.
+//켜면 회원/팀 쓰기는 이 클래스로만 하고(PrimaryWriteGuard 가 기본 DB 쓰기를 막는다) 검색은 모두 샤드에서 모은다.
+//findById 같은 JPA 조회는 기본 DB 를 보므로 샤드 모드에서는 쓰지 않는다
+public class MemberShards implements DisposableBean {
+
+    private final List<EntityManagerFactory> factories = new ArrayList<>();
+    //스프링 빈이 아니라서 컨텍스트가 닫아 주지 않는다. destroy 에서 직접 닫는다
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+    private final AtomicInteger nextTeamShard = new AtomicInteger();
+
+    public MemberShards(ShardingProperties properties) {
+        Assert.notEmpty(properties.getUrls(), "member.sharding.urls must not be empty!");
+        int shardCount = properties.getUrls().size();
+        try {
+            for(int i = 0; i < shardCount; i++){
+                HikariDataSource dataSource = DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(properties.getUrls().get(i))
+                        .username(properties.getUsername())
+                        .password(properties.getPassword())
+                        .build();
+                dataSource.setPoolName("shard" + i);
+                dataSources.add(dataSource);
+                factories.add(createEntityManagerFactory("shard" + i, dataSource, properties));
+                //샤드 i 의 식별자는 N+i, 2N+i, ... 으로 발급되어 id % N 으로 샤드를 찾을 수 있다
+                if(properties.getDdlAuto().startsWith("create")){
+                    new JdbcTemplate(dataSource).execute(
+                            "alter sequence hibernate_sequence restart with " + (shardCount + i) + " increment by " + shardCount);
+                }
+            }
+        } catch (RuntimeException e) {
+            //생성 도중 실패하면 빈이 등록되지 않아 destroy 가 불리지 않으므로 만들어 둔 것을 여기서 닫는다
+            destroy();
+            throw e;
+        }
+    }
+
+    public int size(){
+        return factories.size();
+    }
+
+    public EntityManagerFactory get(int shard){
+        return factories.get(shard);
+    }
+
+    HikariDataSource dataSource(int shard){
+        return dataSources.get(shard);
+    }
+
+    public int shardFor(Long teamId){
+        return teamId == null ? 0 : Math.floorMod(teamId, factories.size());
+    }
+
+    public Team saveTeam(Team team){
+        int shard = Math.floorMod(nextTeamShard.getAndIncrement(), factories.size());
+        inTransaction(shard, em -> em.persist(team));
+        return team;
+    }
+
+    public Member saveMember(Member member){
+        Long teamId = member.getTeam() != null ? member.getTeam().getId() : null;
+        inTransaction(shardFor(teamId), em -> em.persist(member));
+        return member;
+    }
+
+    public void inTransaction(int shard, Consumer<EntityManager> work){
+        EntityManager em = factories.get(shard).createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            work.accept(em);
+            tx.commit();
+        } catch (RuntimeException e) {
+            if(tx.isActive()){
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        factories.forEach(EntityManagerFactory::close);
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+    private static EntityManagerFactory createEntityManagerFactory(String name, HikariDataSource dataSource,
+                                                                   ShardingProperties properties) {
+        Map<String, Object> jpaProperties = new HashMap<>();
+        jpaProperties.put(AvailableSettings.HBM2DDL_AUTO, properties.getDdlAuto());
+        jpaProperties.put(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE, "100");
+        jpaProperties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountInspector());
+        //캐시, 메모리 검색, 변경 피드 같은 앱의 엔티티 리스너는 기본 DB 기준이라 샤드 쓰기에는 돌리지 않는다.
+        //돌리면 샤드와 기본 DB 의 같은 id 가 한 구조에 섞인다
+        jpaProperties.put(AvailableSettings.JPA_CALLBACKS_ENABLED, false);
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setPersistenceUnitName(name);
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan(Member.class.getPackageName());
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(jpaProperties);
+        factory.afterPropertiesSet();
+        return factory.getObject();
+    }
+}
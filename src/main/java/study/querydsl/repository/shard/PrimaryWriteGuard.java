@@ -0,0 +1,33 @@
+package study.querydsl.repository.shard;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+import javax.persistence.PreUpdate;
+
+//샤딩을 켜면 회원/팀은 샤드에만 있어야 하므로 기본 DataSource 로 가는 쓰기를 막는다.
+//엔티티 쓰기는 리스너로, 리스너를 거치지 않는 벌크 쓰기는 check() 로 막는다. 샤드 EMF 는 리스너를 돌리지 않으므로 걸리지 않는다
+@Component
+public class PrimaryWriteGuard {
+
+    private final boolean sharding;
+
+    public PrimaryWriteGuard(@Value("${member.sharding.enabled:false}") boolean sharding) {
+        this.sharding = sharding;
+    }
+
+    @PrePersist
+    @PreUpdate
+    @PreRemove
+    public void onWrite(Object entity){
+        check();
+    }
+
+    public void check(){
+        if(sharding){
+            throw new IllegalStateException("member.sharding.enabled: members and teams must be written through MemberShards");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.repository.shard;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@ConditionalOnProperty(name = "member.sharding.enabled", havingValue = "true")
+public class ShardConfig {
+
+    @Bean
+    MemberShards memberShards(ShardingProperties properties){
+        return new MemberShards(properties);
+    }
+
+    @Bean
+    ShardedMemberSearchExecutor shardedMemberSearchExecutor(MemberShards memberShards, ShardingProperties properties){
+        return new ShardedMemberSearchExecutor(memberShards, properties.getThreads());
+    }
+}
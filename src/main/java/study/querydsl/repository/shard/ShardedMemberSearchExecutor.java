@@ -0,0 +1,110 @@
+package study.querydsl.repository.shard;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberSorts;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//모든 샤드에 같은 Querydsl 쿼리를 병렬로 실행하고 결과를 합친다
+public class ShardedMemberSearchExecutor implements DisposableBean {
+
+    private final MemberShards shards;
+    private final ExecutorService executor;
+
+    public ShardedMemberSearchExecutor(MemberShards shards, int threads) {
+        this.shards = shards;
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    public List<MemberTeamDto> search(Function<JPAQueryFactory, JPAQuery<MemberTeamDto>> contentQuery) {
+        return gather(queryFactory -> contentQuery.apply(queryFactory).fetch()).stream()
+                .flatMap(List::stream)
+                .sorted(MemberSorts.comparator(Sort.unsorted()))
+                .collect(Collectors.toList());
+    }
+
+    public Page<MemberTeamDto> searchPage(Function<JPAQueryFactory, JPAQuery<MemberTeamDto>> contentQuery,
+                                          Function<JPAQueryFactory, JPAQuery<?>> countQuery,
+                                          Pageable pageable) {
+        //각 샤드에서 offset + size 건까지 정렬해서 가져와야 전체 순서에서 해당 페이지를 잘라낼 수 있다
+        long limit = pageable.getOffset() + pageable.getPageSize();
+        List<ShardPage> shardPages = gather(queryFactory -> new ShardPage(
+                contentQuery.apply(queryFactory)
+                        .orderBy(MemberSorts.POLICY.toOrderSpecifiers(pageable.getSort()))
+                        .limit(limit)
+                        .fetch(),
+                countQuery.apply(queryFactory).fetchCount()));
+
+        List<MemberTeamDto> content = shardPages.stream()
+                .flatMap(p -> p.content.stream())
+                .sorted(MemberSorts.comparator(pageable.getSort()))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .collect(Collectors.toList());
+        long total = shardPages.stream().mapToLong(p -> p.total).sum();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private <R> List<R> gather(Function<JPAQueryFactory, R> work) {
+        List<Future<R>> futures = new ArrayList<>();
+        for(int i = 0; i < shards.size(); i++){
+            int shard = i;
+            futures.add(executor.submit(() -> {
+                EntityManager em = shards.get(shard).createEntityManager();
+                try {
+                    return work.apply(new JPAQueryFactory(em));
+                } finally {
+                    em.close();
+                }
+            }));
+        }
+
+        List<R> results = new ArrayList<>();
+        try {
+            for(Future<R> future : futures){
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("shard query interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static class ShardPage {
+        private final List<MemberTeamDto> content;
+        private final long total;
+
+        ShardPage(List<MemberTeamDto> content, long total) {
+            this.content = content;
+            this.total = total;
+        }
+    }
+}
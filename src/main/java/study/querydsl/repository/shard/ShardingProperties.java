@@ -0,0 +1,20 @@
+package study.querydsl.repository.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member.sharding")
+public class ShardingProperties {
+    private boolean enabled;
+    private List<String> urls = new ArrayList<>();
+    private String username = "sa";
+    private String password = "";
+    private String ddlAuto = "create-drop";
+    private int threads = 8;
+}
@@ -0,0 +1,60 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.ForeignKey;
+import com.querydsl.sql.PrimaryKey;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+//member 테이블의 querydsl-sql 메타모델. 스키마는 Hibernate 가 엔티티로 만들므로 Member 매핑이 바뀌면 같이 고친다
+public class SMember extends RelationalPathBase<SMember> {
+
+    public static final SMember member = new SMember("member");
+
+    public final NumberPath<Long> memberId = createNumber("memberId", Long.class);
+
+    public final StringPath username = createString("username");
+
+    public final StringPath usernameLower = createString("usernameLower");
+
+    public final NumberPath<Integer> age = createNumber("age", Integer.class);
+
+    public final NumberPath<Long> version = createNumber("version", Long.class);
+
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public final PrimaryKey<SMember> primary = createPrimaryKey(memberId);
+
+    public final ForeignKey<STeam> teamFk = createForeignKey(teamId, "team_id");
+
+    public SMember(String variable) {
+        super(SMember.class, forVariable(variable), null, "member");
+        addMetadata();
+    }
+
+    public SMember(Path<? extends SMember> path) {
+        super(path.getType(), path.getMetadata(), null, "member");
+        addMetadata();
+    }
+
+    public SMember(PathMetadata metadata) {
+        super(SMember.class, metadata, null, "member");
+        addMetadata();
+    }
+
+    private void addMetadata() {
+        addMetadata(memberId, ColumnMetadata.named("member_id").withIndex(1).ofType(Types.BIGINT).withSize(19).notNull());
+        addMetadata(age, ColumnMetadata.named("age").withIndex(2).ofType(Types.INTEGER).withSize(10).notNull());
+        addMetadata(username, ColumnMetadata.named("username").withIndex(3).ofType(Types.VARCHAR).withSize(255));
+        addMetadata(version, ColumnMetadata.named("version").withIndex(4).ofType(Types.BIGINT).withSize(19));
+        addMetadata(teamId, ColumnMetadata.named("team_id").withIndex(5).ofType(Types.BIGINT).withSize(19));
+        addMetadata(usernameLower, ColumnMetadata.named("username_lower").withIndex(6).ofType(Types.VARCHAR).withSize(255));
+    }
+}
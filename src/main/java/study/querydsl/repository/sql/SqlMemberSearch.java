@@ -0,0 +1,170 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.support.ReplaceVisitor;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLExceptionTranslator;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLTemplates;
+import com.querydsl.sql.SQLTemplatesRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSearchConditionFilter;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.QTeam;
+import study.querydsl.repository.MemberSorts;
+import study.querydsl.repository.support.QueryTimeouts;
+import study.querydsl.repository.support.SortPolicy;
+import study.querydsl.repository.support.TransactionState;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+//회원 검색을 JPQL 파싱과 엔티티 매핑 없이 querydsl-sql 로 바로 SQL 을 만들어 DTO 로 읽는다.
+//JPA 트랜잭션 안이면 같은 커넥션을 쓰고, 밖이면 쿼리마다 풀에서 빌렸다가 돌려준다
+@Component
+@ConditionalOnProperty(name = "member.search.sql.enabled", havingValue = "true")
+public class SqlMemberSearch {
+
+    //JPA 경로 -> 컬럼. 조건은 MemberSearchConditionFilter, 정렬은 MemberSorts.POLICY 에서 가져와 이 표로 옮기므로
+    //JPA 경로와 따로 놀지 않는다. 표에 없는 경로가 생기면 옮길 때 예외가 난다
+    private static final Map<Path<?>, Path<?>> COLUMNS = Map.of(
+            QMember.member.id, member.memberId,
+            QMember.member.username, member.username,
+            QMember.member.age, member.age,
+            QMember.member.team.id, member.teamId,
+            QTeam.team.name, team.name);
+
+    private static final ReplaceVisitor<Void> TO_SQL = new ReplaceVisitor<Void>() {
+        @Override
+        public Expression<?> visit(Path<?> expr, Void context) {
+            Path<?> column = COLUMNS.get(expr);
+            if(column == null){
+                throw new IllegalStateException("no column mapped for " + expr);
+            }
+            return column;
+        }
+    };
+
+    static final SortPolicy SORTS = MemberSorts.POLICY.map(expression -> (ComparableExpressionBase<?>) toSql(expression));
+
+    private final DataSource dataSource;
+    private final EntityManager em;
+    private final Configuration configuration;
+
+    public SqlMemberSearch(DataSource dataSource, EntityManager em) {
+        this.dataSource = dataSource;
+        this.em = em;
+        this.configuration = new Configuration(templatesOf(dataSource));
+        this.configuration.setExceptionTranslator(new SpringTranslator(new SQLErrorCodeSQLExceptionTranslator(dataSource)));
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition){
+        return execute(connection -> QueryTimeouts.apply(searchQuery(connection, condition)).fetch());
+    }
+
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable){
+        return execute(connection -> {
+            List<MemberTeamDto> content = QueryTimeouts.apply(searchQuery(connection, condition)
+                    .orderBy(SORTS.toOrderSpecifiers(pageable.getSort()))
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize()))
+                    .fetch();
+            return PageableExecutionUtils.getPage(content, pageable,
+                    () -> QueryTimeouts.apply(countQuery(connection, condition)).fetchCount());
+        });
+    }
+
+    private SQLQuery<MemberTeamDto> searchQuery(Connection connection, MemberSearchCondition condition){
+        return new SQLQuery<Void>(connection, configuration)
+                .select(Projections.constructor(MemberTeamDto.class,
+                        member.memberId, member.username, member.age, team.teamId, team.name))
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId))
+                .where(predicatesOf(condition));
+    }
+
+    //팀 이름 조건이 없으면 to-one 외부 조인은 건수를 바꾸지 않으므로 조인하지 않는다
+    private SQLQuery<Long> countQuery(Connection connection, MemberSearchCondition condition){
+        SQLQuery<Long> query = new SQLQuery<Void>(connection, configuration)
+                .select(member.memberId)
+                .from(member);
+        if(MemberSearchConditionFilter.teamName(condition.getTeamName()) != null){
+            query.join(team).on(member.teamId.eq(team.teamId));
+        }
+        return query.where(predicatesOf(condition));
+    }
+
+    private <T> T execute(Function<Connection, T> work){
+        //JPQL 은 조회 전에 자동 플러시하지만 JDBC 로 직접 읽을 때는 직접 내려 보내야 커밋 전 변경이 보인다
+        if(TransactionState.inReadWriteTransaction()){
+            em.flush();
+        }
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return work.apply(connection);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static Predicate[] predicatesOf(MemberSearchCondition condition){
+        return Arrays.stream(MemberSearchConditionFilter.of(condition))
+                .map(predicate -> predicate != null ? (Predicate) toSql(predicate) : null)
+                .toArray(Predicate[]::new);
+    }
+
+    private static Expression<?> toSql(Expression<?> expression){
+        return expression.accept(TO_SQL, null);
+    }
+
+    private static SQLTemplates templatesOf(DataSource dataSource){
+        try (Connection connection = dataSource.getConnection()) {
+            return new SQLTemplatesRegistry().getTemplates(connection.getMetaData());
+        } catch (SQLException e) {
+            throw new IllegalStateException("failed to detect SQL dialect", e);
+        }
+    }
+
+    //JPA 경로와 같은 스프링 예외(QueryTimeoutException 등)로 올라오게 한다
+    private static class SpringTranslator implements SQLExceptionTranslator {
+        private final org.springframework.jdbc.support.SQLExceptionTranslator translator;
+
+        SpringTranslator(org.springframework.jdbc.support.SQLExceptionTranslator translator) {
+            this.translator = translator;
+        }
+
+        @Override
+        public RuntimeException translate(String sql, List<Object> bindings, SQLException e) {
+            DataAccessException translated = translator.translate("querydsl-sql", sql, e);
+            return translated != null ? translated : new UncategorizedSQLException("querydsl-sql", sql, e);
+        }
+
+        @Override
+        public RuntimeException translate(SQLException e) {
+            return translate(null, null, e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.internal.util.StringHelper;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.mapping.Collection;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//컬렉션별 배치 크기를 설정으로 덮어쓴다. 키는 "엔티티.컬렉션" 이고 없는 컬렉션을 적으면 기동에 실패한다.
+//persister 가 만들어지기 전에 매핑 모델의 값을 바꾸므로 @BatchSize 와 같은 효과다
+@Component
+@ConfigurationProperties("fetch")
+public class CollectionBatchSizes implements HibernatePropertiesCustomizer {
+
+    //IntegratorProvider 를 받는 JPA 부트스트랩 설정 키. 5.4 에는 공개 상수가 없어서(internal 패키지에만 있다) 문자열로 둔다
+    private static final String INTEGRATOR_PROVIDER = "hibernate.integrator_provider";
+
+    private final Map<String, Integer> collectionBatchSize = new LinkedHashMap<>();
+
+    public Map<String, Integer> getCollectionBatchSize() {
+        return collectionBatchSize;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        Map<String, Integer> sizes = Map.copyOf(collectionBatchSize);
+        hibernateProperties.put(INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(new BatchSizeIntegrator(sizes)));
+    }
+
+    private static class BatchSizeIntegrator implements Integrator {
+        private final Map<String, Integer> sizes;
+
+        BatchSizeIntegrator(Map<String, Integer> sizes) {
+            this.sizes = sizes;
+        }
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                              SessionFactoryServiceRegistry serviceRegistry) {
+            Map<String, Integer> remaining = new HashMap<>(sizes);
+            for(Collection collection : metadata.getCollectionBindings()){
+                Integer size = remaining.remove(keyOf(collection));
+                if(size != null){
+                    collection.setBatchSize(size);
+                }
+            }
+            if(!remaining.isEmpty()){
+                throw new IllegalStateException("unknown collections in fetch.collection-batch-size: " + remaining.keySet());
+            }
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+
+        private static String keyOf(Collection collection){
+            String owner = collection.getOwnerEntityName();
+            return StringHelper.unqualify(owner) + collection.getRole().substring(owner.length());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package study.querydsl.repository.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSortException extends RuntimeException {
+    public InvalidSortException(String property) {
+        super("Sorting by '" + property + "' is not allowed");
+    }
+}
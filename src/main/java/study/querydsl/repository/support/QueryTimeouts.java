@@ -0,0 +1,62 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.sql.AbstractSQLQuery;
+import com.querydsl.sql.StatementOptions;
+
+import javax.persistence.QueryTimeoutException;
+
+//요청 단위 마감 시각을 두고, 남은 시간만큼을 쿼리 타임아웃 힌트로 건다
+public final class QueryTimeouts {
+
+    public static final String TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private QueryTimeouts(){}
+
+    public static void start(long timeoutMillis){
+        DEADLINE.set(System.currentTimeMillis() + timeoutMillis);
+    }
+
+    public static void clear(){
+        DEADLINE.remove();
+    }
+
+    //다른 스레드에서 쿼리를 만들 때 넘겨주기 위한 값, 없으면 null
+    public static Long deadline(){
+        return DEADLINE.get();
+    }
+
+    public static <Q extends JPAQuery<?>> Q apply(Q query){
+        return apply(query, DEADLINE.get());
+    }
+
+    public static <Q extends JPAQuery<?>> Q apply(Q query, Long deadline){
+        Integer seconds = remainingSeconds(deadline);
+        if(seconds != null){
+            query.setHint(TIMEOUT_HINT, seconds * 1000);
+        }
+        return query;
+    }
+
+    public static <Q extends AbstractSQLQuery<?, ?>> Q apply(Q query){
+        Integer seconds = remainingSeconds(DEADLINE.get());
+        if(seconds != null){
+            query.setStatementOptions(StatementOptions.builder().setQueryTimeout(seconds).build());
+        }
+        return query;
+    }
+
+    private static Integer remainingSeconds(Long deadline){
+        if(deadline == null){
+            return null;
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        if(remaining <= 0){
+            throw new QueryTimeoutException("query deadline exceeded before execution");
+        }
+        //JDBC 타임아웃은 초 단위라서 올림하지 않으면 1초 미만은 무제한이 된다
+        return (int) ((remaining + 999) / 1000);
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
+import study.querydsl.repository.cache.QueryResultCache;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
@@ -23,10 +24,11 @@ import java.util.function.Function;
 
 @Repository
 public abstract class Querydsl4RepositorySupport {
-    private final Class domainClass;
+    private final Class<?> domainClass;
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private QueryResultCache queryResultCache;
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
         this.domainClass = domainClass;
@@ -34,20 +36,29 @@ public abstract class Querydsl4RepositorySupport {
     @Autowired
     public void setEntityManager(EntityManager entityManager) {
         Assert.notNull(entityManager, "EntityManager must not be null!");
-        JpaEntityInformation entityInformation =
+        JpaEntityInformation<?, ?> entityInformation =
                 JpaEntityInformationSupport.getEntityInformation(domainClass, entityManager);
         SimpleEntityPathResolver resolver = SimpleEntityPathResolver.INSTANCE;
-        EntityPath path = resolver.createPath(entityInformation.getJavaType());
+        EntityPath<?> path = resolver.createPath(entityInformation.getJavaType());
         this.entityManager = entityManager;
         this.querydsl = new Querydsl(entityManager, new
                 PathBuilder<>(path.getType(), path.getMetadata()));
-        this.queryFactory = new JPAQueryFactory(entityManager);
+    }
+    //벌크 update/delete 가 변경 피드에 알려지도록 앱의 팩토리 빈을 쓴다
+    @Autowired
+    public void setQueryFactory(JPAQueryFactory queryFactory) {
+        this.queryFactory = queryFactory;
+    }
+    @Autowired
+    public void setQueryResultCache(QueryResultCache queryResultCache) {
+        this.queryResultCache = queryResultCache;
     }
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(queryResultCache, "QueryResultCache must not be null!");
     }
     protected JPAQueryFactory getQueryFactory() {
         return queryFactory;
@@ -64,22 +75,38 @@ public abstract class Querydsl4RepositorySupport {
     protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
         return getQueryFactory().selectFrom(from);
     }
-    protected <T> Page<T> applyPagination(Pageable pageable,
-                                          Function<JPAQueryFactory, JPAQuery> contentQuery) {
-        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaQuery).fetch();
+    //정렬은 항상 SortPolicy 를 거친다. 클라이언트가 보낸 정렬 키를 그대로 쿼리에 넣지 않는다
+    protected <T> Page<T> applyPagination(Pageable pageable, SortPolicy sortPolicy,
+                                          Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+        JPAQuery<T> jpaQuery = contentQuery.apply(getQueryFactory());
+        List<T> content = sortPolicy.apply(pageable, jpaQuery).fetch();
         return PageableExecutionUtils.getPage(content, pageable,
                 jpaQuery::fetchCount);
     }
-    protected <T> Page<T> applyPagination(Pageable pageable,
-                                          Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
-            JPAQuery> countQuery) {
-        JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaContentQuery).fetch();
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
+    protected <T> Page<T> applyPagination(Pageable pageable, SortPolicy sortPolicy,
+                                          Function<JPAQueryFactory, JPAQuery<T>> contentQuery, Function<JPAQueryFactory,
+            JPAQuery<?>> countQuery) {
+        JPAQuery<T> jpaContentQuery = contentQuery.apply(getQueryFactory());
+        List<T> content = sortPolicy.apply(pageable, jpaContentQuery).fetch();
+        JPAQuery<?> countResult = countQuery.apply(getQueryFactory());
         return PageableExecutionUtils.getPage(content, pageable,
                 countResult::fetchCount);
     }
+    //결과 캐시를 거치는 조회. 쿼리에 등장한 엔티티가 변경되면 비워진다
+    protected <T> List<T> fetchCached(JPAQuery<T> query) {
+        return queryResultCache.fetch(query);
+    }
+    protected long fetchCountCached(JPAQuery<?> query) {
+        return queryResultCache.fetchCount(query);
+    }
+    protected <T> Page<T> applyPaginationCached(Pageable pageable, SortPolicy sortPolicy,
+                                                Function<JPAQueryFactory, JPAQuery<T>> contentQuery, Function<JPAQueryFactory,
+            JPAQuery<?>> countQuery) {
+        JPAQuery<T> jpaContentQuery = contentQuery.apply(getQueryFactory());
+        sortPolicy.apply(pageable, jpaContentQuery);
+        List<T> content = fetchCached(jpaContentQuery);
+        JPAQuery<?> countResult = countQuery.apply(getQueryFactory());
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> fetchCountCached(countResult));
+    }
 }
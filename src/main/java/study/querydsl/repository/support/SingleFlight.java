@@ -0,0 +1,89 @@
+package study.querydsl.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.QueryTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//같은 키로 동시에 들어온 조회는 먼저 온 요청 하나만 실행하고 나머지는 그 결과를 기다린다
+@Component
+public class SingleFlight {
+
+    private final boolean enabled;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(@Value("${member.search.single-flight.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V execute(Object key, Supplier<V> loader){
+        //쓰기 트랜잭션은 커밋 전 데이터가 보이므로 다른 요청과 결과를 나누면 안 된다
+        if(!enabled || TransactionState.inReadWriteTransaction()){
+            return loader.get();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if(existing != null){
+            coalesced.increment();
+            return (V) await(existing);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future){
+        Long deadline = QueryTimeouts.deadline();
+        try {
+            if(deadline == null){
+                return future.get();
+            }
+            //기다리는 쪽도 자기 요청의 마감 시각을 넘기지 않는다
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("timed out waiting for a coalesced query");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for a coalesced query", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            if(e.getCause() instanceof Error){
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public Map<String, Object> stats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("executions", executions.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+}
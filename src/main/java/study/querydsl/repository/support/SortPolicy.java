@@ -0,0 +1,109 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.jpa.JPQLQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+//클라이언트가 보낸 정렬 키를 인덱스가 있는 컬럼으로만 매핑하고, 마지막에 식별자로 순서를 고정한다
+public class SortPolicy {
+
+    public enum Unknown { REJECT, IGNORE }
+
+    private final Map<String, ComparableExpressionBase<?>> keys;
+    private final String tiebreakerKey;
+    private final Unknown unknown;
+
+    private SortPolicy(Builder builder) {
+        this.keys = Collections.unmodifiableMap(new LinkedHashMap<>(builder.keys));
+        this.tiebreakerKey = builder.tiebreakerKey;
+        this.unknown = builder.unknown;
+    }
+
+    public static Builder builder(String tiebreakerKey, ComparableExpressionBase<?> tiebreaker){
+        return new Builder(tiebreakerKey, tiebreaker);
+    }
+
+    public boolean isAllowed(String property){
+        return keys.containsKey(property);
+    }
+
+    public Sort sanitize(Sort sort){
+        List<Sort.Order> orders = new ArrayList<>();
+        boolean hasTiebreaker = false;
+        for(Sort.Order order : sort){
+            if(!isAllowed(order.getProperty())){
+                if(unknown == Unknown.REJECT){
+                    throw new InvalidSortException(order.getProperty());
+                }
+                continue;
+            }
+            orders.add(order);
+            hasTiebreaker |= order.getProperty().equals(tiebreakerKey);
+        }
+        if(!hasTiebreaker){
+            orders.add(Sort.Order.asc(tiebreakerKey));
+        }
+        return Sort.by(orders);
+    }
+
+    public OrderSpecifier<?>[] toOrderSpecifiers(Sort sort){
+        return sanitize(sort).stream()
+                .map(order -> new OrderSpecifier<>(
+                        order.isAscending() ? Order.ASC : Order.DESC,
+                        keys.get(order.getProperty())))
+                .toArray(OrderSpecifier[]::new);
+    }
+
+    //같은 정렬 키를 다른 쿼리 모델(querydsl-sql 등)의 식으로 옮긴 정책을 만든다
+    public SortPolicy map(Function<ComparableExpressionBase<?>, ? extends ComparableExpressionBase<?>> mapper){
+        Builder builder = new Builder(tiebreakerKey, mapper.apply(keys.get(tiebreakerKey))).onUnknown(unknown);
+        keys.forEach((key, expression) -> builder.allow(key, mapper.apply(expression)));
+        return builder.build();
+    }
+
+    public <T> JPQLQuery<T> apply(Pageable pageable, JPQLQuery<T> query){
+        query.orderBy(toOrderSpecifiers(pageable.getSort()));
+        if(pageable.isPaged()){
+            query.offset(pageable.getOffset());
+            query.limit(pageable.getPageSize());
+        }
+        return query;
+    }
+
+    public static class Builder {
+        private final Map<String, ComparableExpressionBase<?>> keys = new LinkedHashMap<>();
+        private final String tiebreakerKey;
+        private Unknown unknown = Unknown.REJECT;
+
+        private Builder(String tiebreakerKey, ComparableExpressionBase<?> tiebreaker) {
+            Assert.notNull(tiebreaker, "Tiebreaker must not be null!");
+            this.tiebreakerKey = tiebreakerKey;
+            keys.put(tiebreakerKey, tiebreaker);
+        }
+
+        public Builder allow(String key, ComparableExpressionBase<?> expression){
+            keys.put(key, expression);
+            return this;
+        }
+
+        public Builder onUnknown(Unknown unknown){
+            this.unknown = unknown;
+            return this;
+        }
+
+        public SortPolicy build(){
+            return new SortPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.StandardSQLFunction;
+import org.hibernate.type.StandardBasicTypes;
+
+//방언에 없는 DB 함수를 반환 타입과 함께 등록한다. 등록하지 않으면 function('...') 이 select 절에서 타입을 몰라 실패한다.
+//H2 와 MySQL 8 에 같은 이름으로 있는 함수만 둔다
+public class SqlFunctions implements MetadataBuilderContributor {
+
+    @Override
+    public void contribute(MetadataBuilder metadataBuilder) {
+        metadataBuilder.applySqlFunction("regexp_replace", new StandardSQLFunction("regexp_replace", StandardBasicTypes.STRING));
+    }
+}
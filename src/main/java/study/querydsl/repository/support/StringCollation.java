@@ -0,0 +1,30 @@
+package study.querydsl.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+//DB 가 같은 문자열로 보는 값을 자바에서도 같은 키로 만든다.
+//MySQL 기본 콜레이션(utf8mb4_0900_ai_ci 등, PAD SPACE)은 대소문자와 뒤 공백을 무시하므로 mysql 프로필에서 켠다.
+//악센트 무시까지 맞추지는 않으므로 바이너리가 아닐 때 정확히 맞아야 하는 검색은 DB 로 보낸다
+@Component
+public class StringCollation {
+
+    private final boolean caseInsensitive;
+
+    public StringCollation(@Value("${db.collation.case-insensitive:false}") boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+    }
+
+    public boolean isBinary(){
+        return !caseInsensitive;
+    }
+
+    public String keyOf(String value){
+        if(value == null || !caseInsensitive){
+            return value;
+        }
+        return value.stripTrailing().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+//JPAExpressions 서브쿼리를 한 번만 실행하고 결과 값으로 바꿔 행마다 다시 평가되지 않도록 한다
+@Component
+public class SubqueryRewriter {
+
+    private final EntityManager em;
+    private final int maxInlinedValues;
+
+    public SubqueryRewriter(EntityManager em,
+                            @Value("${query.semi-join.max-inlined-values:500}") int maxInlinedValues) {
+        this.em = em;
+        this.maxInlinedValues = maxInlinedValues;
+    }
+
+    //스칼라 서브쿼리 -> 상수
+    public <T> T precompute(JPQLQuery<T> subquery){
+        return toQuery(subquery).fetchOne();
+    }
+
+    //IN (서브쿼리) -> IN (값 목록), 값이 없으면 항상 거짓.
+    //값이 한도보다 많으면 긴 IN 목록 대신 원래 서브쿼리를 그대로 쓴다
+    public <T> BooleanExpression semiJoin(SimpleExpression<T> expression, JPQLQuery<T> subquery){
+        List<T> values = toQuery(subquery).distinct().limit(maxInlinedValues + 1L).fetch();
+        values.remove(null);
+        if(values.size() > maxInlinedValues){
+            return expression.in(subquery);
+        }
+        return values.isEmpty() ? Expressions.FALSE.isTrue() : expression.in(values);
+    }
+
+    public <T> JPAQuery<T> toQuery(JPQLQuery<T> subquery){
+        return new JPAQuery<>(em, subquery.getMetadata().clone());
+    }
+}
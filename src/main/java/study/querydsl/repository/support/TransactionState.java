@@ -0,0 +1,33 @@
+package study.querydsl.repository.support;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionState {
+
+    private TransactionState(){}
+
+    //커밋 전 데이터가 보일 수 있는 쓰기 트랜잭션 안인지 확인
+    public static boolean inReadWriteTransaction(){
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    public static boolean isSynchronizationActive(){
+        return TransactionSynchronizationManager.isSynchronizationActive();
+    }
+
+    //트랜잭션 동기화가 없으면 커밋을 기다릴 것이 없으므로 바로 실행한다
+    public static void afterCommit(Runnable action){
+        if(isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
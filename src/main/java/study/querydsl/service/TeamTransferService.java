@@ -0,0 +1,181 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamTransferResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static study.querydsl.entity.QMember.member;
+
+//회원 팀 이동을 @Version 낙관적 락으로 처리하고 충돌 시 제한된 횟수만큼 다시 시도
+@Slf4j
+@Service
+public class TeamTransferService {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    private final LongAdder transfers = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder retryNanos = new LongAdder();
+    private final AtomicLong maxRetryNanos = new AtomicLong();
+
+    public TeamTransferService(EntityManager em,
+                               JPAQueryFactory queryFactory,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${member.transfer.max-attempts:10}") int maxAttempts,
+                               @Value("${member.transfer.backoff-millis:10}") long backoffMillis) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        //재시도마다 새 트랜잭션이어야 최신 version 을 다시 읽는다
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public TeamTransferResult transfer(Long memberId, Long teamId){
+        long start = System.currentTimeMillis();
+        int[] used = new int[1];
+        int moved = moveWithRetry(List.of(memberId), teamId, used);
+        return new TeamTransferResult(moved, used[0], List.of(), System.currentTimeMillis() - start);
+    }
+
+    //같은 팀으로 가는 이동은 트랜잭션 하나로 묶는다. 팀마다 따로 커밋하므로 요청 전체는 원자적이지 않다.
+    //실패한 팀 묶음은 건너뛰고 failedMemberIds 로 알리며, 먼저 커밋된 이동은 되돌리지 않는다
+    public TeamTransferResult transferAll(Map<Long, Long> teamIdByMemberId){
+        long start = System.currentTimeMillis();
+        Map<Long, List<Long>> memberIdsByTeam = new LinkedHashMap<>();
+        teamIdByMemberId.forEach((memberId, teamId) ->
+                memberIdsByTeam.computeIfAbsent(teamId, k -> new ArrayList<>()).add(memberId));
+
+        int moved = 0;
+        int totalAttempts = 0;
+        List<Long> failed = new ArrayList<>();
+        for(Map.Entry<Long, List<Long>> entry : memberIdsByTeam.entrySet()){
+            int[] used = new int[1];
+            try {
+                moved += moveWithRetry(entry.getValue(), entry.getKey(), used);
+            } catch (OptimisticLockingFailureException | IllegalArgumentException e) {
+                log.warn("team transfer to {} failed for {}: {}", entry.getKey(), entry.getValue(), e.getMessage());
+                failed.addAll(entry.getValue());
+            } finally {
+                totalAttempts += used[0];
+            }
+        }
+        return new TeamTransferResult(moved, totalAttempts, failed, System.currentTimeMillis() - start);
+    }
+
+    private int moveWithRetry(List<Long> memberIds, Long teamId, int[] used){
+        return withRetry(() -> {
+            used[0]++;
+            return transactionTemplate.execute(status -> move(memberIds, teamId));
+        });
+    }
+
+    private int move(Collection<Long> memberIds, Long teamId){
+        Team team = em.find(Team.class, teamId);
+        if(team == null){
+            throw new IllegalArgumentException("team not found: " + teamId);
+        }
+        List<Member> members = queryFactory
+                .selectFrom(member)
+                .where(member.id.in(memberIds))
+                .fetch();
+        if(members.size() != memberIds.size()){
+            throw new IllegalArgumentException("member not found: " + memberIds);
+        }
+        int moved = 0;
+        for(Member m : members){
+            if(m.getTeam() != team){
+                m.changeTeam(team);
+                moved++;
+            }
+        }
+        //version 충돌은 커밋 시점에 ObjectOptimisticLockingFailureException 으로 번역되어 올라온다
+        return moved;
+    }
+
+    private <T> T withRetry(Supplier<T> work){
+        transfers.increment();
+        long start = System.nanoTime();
+        for(int attempt = 1; ; attempt++){
+            attempts.increment();
+            try {
+                T result = work.get();
+                if(attempt > 1){
+                    recordRetryLatency(System.nanoTime() - start);
+                }
+                return result;
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.increment();
+                if(attempt >= maxAttempts){
+                    exhausted.increment();
+                    recordRetryLatency(System.nanoTime() - start);
+                    log.warn("team transfer gave up after {} attempts", attempt);
+                    throw e;
+                }
+                if(attempt == 1){
+                    retried.increment();
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    //충돌한 요청끼리 같은 순간에 다시 부딪히지 않도록 지수 백오프에 지터를 섞는다
+    private void backoff(int attempt){
+        long bound = backoffMillis << Math.min(attempt - 1, 6);
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while retrying team transfer", e);
+        }
+    }
+
+    private void recordRetryLatency(long nanos){
+        retryNanos.add(nanos);
+        maxRetryNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Map<String, Object> stats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long attemptCount = attempts.sum();
+        long retriedCount = retried.sum();
+        stats.put("transfers", transfers.sum());
+        stats.put("attempts", attemptCount);
+        stats.put("conflicts", conflicts.sum());
+        stats.put("conflictRate", attemptCount == 0 ? 0.0 : (double) conflicts.sum() / attemptCount);
+        stats.put("retried", retriedCount);
+        stats.put("exhausted", exhausted.sum());
+        stats.put("avgRetryLatencyMicros", retriedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(retryNanos.sum() / retriedCount));
+        stats.put("maxRetryLatencyMicros", TimeUnit.NANOSECONDS.toMicros(maxRetryNanos.get()));
+        return stats;
+    }
+}
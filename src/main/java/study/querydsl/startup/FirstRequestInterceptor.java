@@ -0,0 +1,38 @@
+package study.querydsl.startup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@RequiredArgsConstructor
+public class FirstRequestInterceptor implements HandlerInterceptor {
+
+    private static final String STARTED = FirstRequestInterceptor.class.getName() + ".STARTED";
+
+    private final StartupMetrics startupMetrics;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //엔드포인트마다 첫 요청만 잰다
+        if(startupMetrics.isFirstRequest(endpoint(request))){
+            request.setAttribute(STARTED, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object started = request.getAttribute(STARTED);
+        if(started != null){
+            startupMetrics.recordRequest(endpoint(request), System.nanoTime() - (Long) started);
+        }
+    }
+
+    private String endpoint(HttpServletRequest request){
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+}
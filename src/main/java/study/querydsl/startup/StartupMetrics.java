@@ -0,0 +1,70 @@
+package study.querydsl.startup;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+//JVM 시작부터 컨텍스트 기동, 워밍업, 준비 완료까지의 시간과 엔드포인트별 첫 요청 지연
+@Component
+public class StartupMetrics {
+
+    private volatile long startedMillis = -1;
+    private volatile long readyMillis = -1;
+    private volatile long warmUpMillis = -1;
+    private volatile int warmUpQueries;
+    private final ConcurrentMap<String, Long> firstRequestMicros = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void onStarted(){
+        startedMillis = uptime();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(){
+        readyMillis = uptime();
+    }
+
+    void recordWarmUp(long elapsedMillis, int queries){
+        warmUpMillis = elapsedMillis;
+        warmUpQueries = queries;
+    }
+
+    void recordRequest(String endpoint, long elapsedNanos){
+        firstRequestMicros.putIfAbsent(endpoint, TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+
+    boolean isFirstRequest(String endpoint){
+        return !firstRequestMicros.containsKey(endpoint);
+    }
+
+    public long getWarmUpMillis(){
+        return warmUpMillis;
+    }
+
+    public int getWarmUpQueries(){
+        return warmUpQueries;
+    }
+
+    public Map<String, Object> snapshot(){
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("contextStartedMillis", startedMillis);
+        map.put("warmUpMillis", warmUpMillis);
+        map.put("warmUpQueries", warmUpQueries);
+        map.put("readyMillis", readyMillis);
+        map.put("firstRequestMicros", new TreeMap<>(firstRequestMicros));
+        return map;
+    }
+
+    private long uptime(){
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
@@ -0,0 +1,100 @@
+package study.querydsl.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.monitor.QueryCounter;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.cache.TeamNameDictionary;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.UUID;
+
+//첫 트래픽 전에 자주 쓰는 쿼리 모양을 실행해서 Q 타입 로딩, JPQL 직렬화, Hibernate 쿼리 플랜 컴파일을 끝내 둔다.
+//쿼리 플랜은 JPQL 문자열로 캐시되므로 값은 어떤 행과도 맞지 않게 골라 테이블을 읽지 않는다.
+//조건 없는 검색은 카운트 쿼리가 테이블 전체를 세므로 데우지 않고 첫 요청이 컴파일한다.
+//팀 이름 사전은 실제 요청과 같은 모양을 데우도록 먼저 읽어 둔다. 없는 팀 이름은 다른 모양(빈 IN)이 되어 그 모양은 데워지지 않는다
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "warmup.enabled", havingValue = "true")
+public class WarmUpRunner implements ApplicationRunner {
+
+    private final EntityManagerFactory emf;
+    private final MemberRepository memberRepository;
+    private final MemberJpaRepository memberJpaRepository;
+    private final TeamNameDictionary teamNameDictionary;
+    private final TransactionTemplate readOnly;
+    private final StartupMetrics startupMetrics;
+    private final int iterations;
+
+    public WarmUpRunner(EntityManagerFactory emf,
+                        MemberRepository memberRepository,
+                        MemberJpaRepository memberJpaRepository,
+                        TeamNameDictionary teamNameDictionary,
+                        PlatformTransactionManager transactionManager,
+                        StartupMetrics startupMetrics,
+                        @Value("${warmup.iterations:3}") int iterations) {
+        this.emf = emf;
+        this.memberRepository = memberRepository;
+        this.memberJpaRepository = memberJpaRepository;
+        this.teamNameDictionary = teamNameDictionary;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.startupMetrics = startupMetrics;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        emf.getMetamodel().getEntities();
+        //ApplicationReadyEvent 는 러너 뒤에 오므로 여기서 기다려 읽는다
+        teamNameDictionary.loadNow();
+
+        String noMatch = "warm-up-" + UUID.randomUUID();
+        List<MemberSearchCondition> conditions = List.of(
+                MemberSearchCondition.builder().username(noMatch).build(),
+                MemberSearchCondition.builder().teamName(noMatch).build(),
+                MemberSearchCondition.builder().ageGoe(1).ageLoe(0).build(),
+                new MemberSearchCondition(noMatch, noMatch, 1, 0));
+        List<Sort> sorts = List.of(Sort.unsorted(), Sort.by("username"), Sort.by(Sort.Direction.DESC, "age"));
+        QueryCounter.start();
+        int queries;
+        try {
+            for(int i = 0; i < iterations; i++){
+                for(MemberSearchCondition condition : conditions){
+                    readOnly.executeWithoutResult(status -> {
+                        memberJpaRepository.search(condition);
+                        memberRepository.search(condition);
+                        searchPages(condition, sorts);
+                    });
+                }
+            }
+        } finally {
+            //카운트 쿼리까지 실제로 실행된 문장 수
+            queries = QueryCounter.stop().getCount();
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        startupMetrics.recordWarmUp(elapsed, queries);
+        log.info("warm-up finished: {} queries in {} ms", queries, elapsed);
+    }
+
+    private void searchPages(MemberSearchCondition condition, List<Sort> sorts){
+        for(Sort sort : sorts){
+            memberRepository.searchPageSimple(condition, PageRequest.of(0, 1, sort));
+            //두 번째 페이지여야 카운트 쿼리까지 실행된다
+            memberRepository.searchPageComplex(condition, PageRequest.of(1, 1, sort));
+        }
+    }
+}
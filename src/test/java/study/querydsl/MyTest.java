@@ -26,6 +26,8 @@ import study.querydsl.entity.test.Forest;
 import study.querydsl.entity.test.Leaf;
 import study.querydsl.entity.test.QTree;
 import study.querydsl.entity.test.Tree;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -81,4 +83,22 @@ public class MyTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void batchFetchTreesAndLeaves() throws Exception{
+        em.flush();
+        em.clear();
+
+        List<Forest> forests = em.createQuery("select f from Forest f", Forest.class).getResultList();
+
+        QueryCounter.start();
+        int leafCount = forests.stream()
+                .flatMap(f -> f.getTrees().stream())
+                .mapToInt(t -> t.getLeaves().size())
+                .sum();
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(leafCount).isEqualTo(24);
+        Assertions.assertThat(context.getCount()).isEqualTo(2);
+    }
+
+}
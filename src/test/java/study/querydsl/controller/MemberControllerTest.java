@@ -0,0 +1,37 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void rejectTooManyBatchConditions() throws Exception{
+        mockMvc.perform(post("/v1/members/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchOf(50)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/v1/members/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchOf(51)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String batchOf(int size){
+        return "[" + String.join(",", Collections.nCopies(size, "{\"username\":\"nobody\"}")) + "]";
+    }
+}
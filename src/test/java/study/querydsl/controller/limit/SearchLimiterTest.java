@@ -0,0 +1,49 @@
+package study.querydsl.controller.limit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.monitor.PoolWaitMetrics;
+
+import java.time.Duration;
+
+class SearchLimiterTest {
+
+    long recentWaitNanos;
+
+    PoolWaitMetrics poolWaitMetrics = new PoolWaitMetrics() {
+        @Override
+        public long getRecentWaitNanos() {
+            return recentWaitNanos;
+        }
+    };
+
+    @Test
+    void rejectOverLimit() throws Exception{
+        SearchLimiter limiter = new SearchLimiter(poolWaitMetrics, 1, 2, Duration.ofMillis(100), Duration.ofHours(1));
+
+        Assertions.assertThat(limiter.tryAcquire()).isTrue();
+        Assertions.assertThat(limiter.tryAcquire()).isTrue();
+        Assertions.assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release();
+        Assertions.assertThat(limiter.tryAcquire()).isTrue();
+        Assertions.assertThat(limiter.stats()).containsEntry("accepted", 3L).containsEntry("rejected", 1L);
+    }
+
+    @Test
+    void shrinkWhenPoolWaitSpikes() throws Exception{
+        SearchLimiter limiter = new SearchLimiter(poolWaitMetrics, 2, 16, Duration.ofMillis(100), Duration.ZERO);
+
+        recentWaitNanos = Duration.ofMillis(500).toNanos();
+        limiter.adjust();
+        limiter.adjust();
+        Assertions.assertThat(limiter.getLimit()).isEqualTo(4);
+        limiter.adjust();
+        limiter.adjust();
+        Assertions.assertThat(limiter.getLimit()).isEqualTo(2);
+
+        recentWaitNanos = 0;
+        limiter.adjust();
+        Assertions.assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+}
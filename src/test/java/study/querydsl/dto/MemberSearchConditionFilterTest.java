@@ -0,0 +1,57 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+class MemberSearchConditionFilterTest {
+
+    @Test
+    void generatedPredicates() throws Exception{
+        MemberSearchCondition condition = new MemberSearchCondition("member1", "teamA", 10, 20);
+
+        Predicate[] predicates = MemberSearchConditionFilter.of(condition);
+
+        //손으로 쓰던 usernameEq/teamNameEq/ageGoe/ageLoe 와 같은 식이어야 한다
+        Assertions.assertThat(predicates).containsExactly(
+                member.username.eq("member1"),
+                team.name.eq("teamA"),
+                member.age.goe(10),
+                member.age.loe(20));
+    }
+
+    @Test
+    void skipEmptyValues() throws Exception{
+        MemberSearchCondition condition = new MemberSearchCondition(" ", null, null, 20);
+
+        Predicate[] predicates = MemberSearchConditionFilter.of(condition);
+
+        Assertions.assertThat(predicates).containsExactly(null, null, null, member.age.loe(20));
+    }
+
+    @Test
+    void overrideOneField() throws Exception{
+        MemberSearchCondition condition = new MemberSearchCondition("member1", "teamA", null, 20);
+        MemberSearchConditionFilter.Overrides byTeamId = new MemberSearchConditionFilter.Overrides() {
+            @Override
+            public BooleanExpression teamName(String teamName) {
+                return member.team.id.eq(1L);
+            }
+        };
+
+        Predicate[] predicates = MemberSearchConditionFilter.of(condition, byTeamId);
+        Predicate[] empty = MemberSearchConditionFilter.of(new MemberSearchCondition(), byTeamId);
+
+        //재정의한 필드만 바뀌고, 값이 없으면 재정의한 메서드도 불리지 않는다
+        Assertions.assertThat(predicates).containsExactly(
+                member.username.eq("member1"),
+                member.team.id.eq(1L),
+                null,
+                member.age.loe(20));
+        Assertions.assertThat(empty).containsOnlyNulls();
+    }
+}
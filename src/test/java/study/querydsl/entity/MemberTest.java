@@ -5,6 +5,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
+
 import javax.persistence.EntityManager;
 
 import java.util.List;
@@ -44,4 +50,75 @@ class MemberTest {
         });
     }
 
-}
\ No newline at end of file
+    @Test
+    void addMemberToLargeTeam() throws Exception{
+        //given
+        Team team = new Team("large");
+        em.persist(team);
+        for(int i = 0; i < 5000; i++){
+            em.persist(new Member("member" + i, i % 100, team));
+            if(i % 1000 == 999){
+                em.flush();
+                em.clear();
+                team = em.find(Team.class, team.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+
+        //when
+        Team findTeam = em.find(Team.class, team.getId());
+        PersistenceContext persistenceContext = em.unwrap(SessionImplementor.class).getPersistenceContext();
+        QueryCounter.start();
+        for(int i = 0; i < 100; i++){
+            em.persist(new Member("new" + i, 1, findTeam));
+        }
+        em.flush();
+        QueryCountContext context = QueryCounter.stop();
+
+        //then
+        assertFalse(Hibernate.isInitialized(findTeam.getMembers()));
+        assertEquals(0, context.getCount("select"));
+        //영속성 컨텍스트에는 팀과 새 회원만 있다
+        assertEquals(101, persistenceContext.getNumberOfManagedEntities());
+
+        em.clear();
+        assertEquals(5100, em.find(Team.class, team.getId()).getMembers().size());
+    }
+
+    @Test
+    void addMemberToDetachedTeam() throws Exception{
+        Team team = new Team("teamA");
+        em.persist(team);
+        em.flush();
+        em.clear();
+        Team detached = em.find(Team.class, team.getId());
+        em.detach(detached);
+
+        //로딩되지 않은 준영속 컬렉션을 건드리지 않으므로 LazyInitializationException 이 나지 않는다
+        Member member = new Member("member1", 10, detached);
+        em.persist(member);
+        em.flush();
+        em.clear();
+
+        assertEquals(1, em.find(Team.class, team.getId()).getMembers().size());
+    }
+
+    @Test
+    void changeTeamKeepsLoadedCollectionsInSync() throws Exception{
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member = new Member("member1", 10, teamA);
+        em.persist(member);
+
+        //when
+        member.changeTeam(teamB);
+
+        //then
+        assertTrue(teamA.getMembers().isEmpty());
+        assertEquals(List.of(member), teamB.getMembers());
+    }
+}
@@ -0,0 +1,185 @@
+package study.querydsl.load;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.PoolWaitMetrics;
+
+import javax.persistence.EntityManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+//./gradlew loadTest 로 실행
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("perf")
+class MemberLoadTest {
+
+    private static final int MEMBER_COUNT = 10_000;
+    private static final int[] CONCURRENCY = {1, 2, 4, 8, 16, 32, 64};
+    private static final long DURATION_MILLIS = 3_000;
+    private static final String[] ENDPOINTS = {
+            "/v1/members?teamName=teamA&ageGoe=30&ageLoe=35",
+            "/v2/members?teamName=teamB&page=3&size=20",
+            "/v3/members?ageGoe=50&page=0&size=20"
+    };
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    PoolWaitMetrics poolWaitMetrics;
+
+    HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            if(em.createQuery("select count(m) from Member m", Long.class).getSingleResult() > 0){
+                return;
+            }
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for(int i = 0; i < MEMBER_COUNT; i++){
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+                if(i % 500 == 0){
+                    em.flush();
+                    em.clear();
+                    teamA = em.merge(teamA);
+                    teamB = em.merge(teamB);
+                }
+            }
+        });
+    }
+
+    @Test
+    void searchEndpoints() throws Exception{
+        for(String endpoint : ENDPOINTS){
+            System.out.println("== " + endpoint);
+            System.out.printf("%6s %10s %10s %10s %8s %14s %14s%n",
+                    "conc", "req/s", "p50(ms)", "p99(ms)", "429", "poolAvg(us)", "poolMax(us)");
+            for(int concurrency : CONCURRENCY){
+                Result result = run(endpoint, concurrency);
+                //SearchLimiter 가 한도를 넘는 요청을 429 로 돌려보내는 것은 의도한 동작이라 오류와 따로 센다
+                Assertions.assertThat(result.errors).isZero();
+                System.out.printf("%6d %10.1f %10.2f %10.2f %8d %14d %14d%n",
+                        concurrency, result.throughput(), result.percentileMillis(0.50),
+                        result.percentileMillis(0.99), result.rejected,
+                        result.poolAvgWaitMicros, result.poolMaxWaitMicros);
+            }
+        }
+    }
+
+    private Result run(String endpoint, int concurrency) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + endpoint)).build();
+        long poolCountBefore = poolWaitMetrics.getAcquiredCount();
+        long poolWaitBefore = poolWaitMetrics.getTotalWaitNanos();
+        poolWaitMetrics.resetMaxWaitNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        List<Future<Worker>> futures = new ArrayList<>();
+        for(int i = 0; i < concurrency; i++){
+            futures.add(executor.submit(() -> {
+                Worker worker = new Worker();
+                while(System.nanoTime() < deadline){
+                    long start = System.nanoTime();
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    worker.record(System.nanoTime() - start, response.statusCode());
+                }
+                return worker;
+            }));
+        }
+
+        Result result = new Result();
+        for(Future<Worker> future : futures){
+            result.add(future.get());
+        }
+        executor.shutdown();
+
+        long poolCount = poolWaitMetrics.getAcquiredCount() - poolCountBefore;
+        long poolWait = poolWaitMetrics.getTotalWaitNanos() - poolWaitBefore;
+        result.poolAvgWaitMicros = poolCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(poolWait / poolCount);
+        result.poolMaxWaitMicros = TimeUnit.NANOSECONDS.toMicros(poolWaitMetrics.getMaxWaitNanos());
+        return result;
+    }
+
+    private static class Worker {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int rejected;
+        private int errors;
+
+        //처리량과 지연은 성공한 요청만으로 낸다. 바로 돌아오는 429 가 섞이면 p50 이 좋아 보인다
+        void record(long nanos, int status){
+            if(status == 429){
+                rejected++;
+                return;
+            }
+            if(status != 200){
+                errors++;
+                return;
+            }
+            if(count == latencies.length){
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    private static class Result {
+        private long[] latencies = new long[0];
+        private int rejected;
+        private int errors;
+        private long poolAvgWaitMicros;
+        private long poolMaxWaitMicros;
+
+        void add(Worker worker){
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + worker.count);
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            rejected += worker.rejected;
+            errors += worker.errors;
+        }
+
+        double throughput(){
+            return latencies.length * 1000.0 / DURATION_MILLIS;
+        }
+
+        double percentileMillis(double percentile){
+            if(latencies.length == 0){
+                return 0;
+            }
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
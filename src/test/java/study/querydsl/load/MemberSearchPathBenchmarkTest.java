@@ -0,0 +1,93 @@
+package study.querydsl.load;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.sql.SqlMemberSearch;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.Supplier;
+
+//./gradlew loadTest 로 실행. 같은 조건을 JPQL 경로와 querydsl-sql 경로로 번갈아 돌려 비교한다
+@Tag("load")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:search-path;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "member.search.sql.enabled=true"
+})
+class MemberSearchPathBenchmarkTest {
+
+    private static final int MEMBER_COUNT = 10_000;
+    private static final int WARM_UP = 200;
+    private static final int ITERATIONS = 1_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    SqlMemberSearch sqlMemberSearch;
+
+    @BeforeEach
+    void setUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            if(em.createQuery("select count(m) from Member m", Long.class).getSingleResult() > 0){
+                return;
+            }
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for(int i = 0; i < MEMBER_COUNT; i++){
+                em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+                if(i % 500 == 0){
+                    em.flush();
+                    em.clear();
+                    teamA = em.merge(teamA);
+                    teamB = em.merge(teamB);
+                }
+            }
+        });
+    }
+
+    @Test
+    void jpqlVersusSql() throws Exception{
+        MemberSearchCondition narrow = new MemberSearchCondition("member42", null, null, null);
+        MemberSearchCondition wide = new MemberSearchCondition(null, "teamA", 30, 35);
+
+        System.out.printf("%-8s %-6s %12s %12s%n", "query", "path", "avg(us)", "rows");
+        for(MemberSearchCondition condition : List.of(narrow, wide)){
+            String name = condition == narrow ? "narrow" : "wide";
+            int jpqlRows = run(name, "jpql", () -> memberJpaRepository.search(condition).size());
+            int sqlRows = run(name, "sql", () -> sqlMemberSearch.search(condition).size());
+            Assertions.assertThat(sqlRows).isEqualTo(jpqlRows);
+        }
+    }
+
+    private int run(String query, String path, Supplier<Integer> search){
+        for(int i = 0; i < WARM_UP; i++){
+            search.get();
+        }
+        int rows = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++){
+            rows = search.get();
+        }
+        long avgMicros = (System.nanoTime() - start) / ITERATIONS / 1_000;
+        System.out.printf("%-8s %-6s %12d %12d%n", query, path, avgMicros, rows);
+        return rows;
+    }
+}
@@ -0,0 +1,117 @@
+package study.querydsl.monitor;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class LatencyRecorderTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    LatencyRecorder latencyRecorder;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    void setUp(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for(int i = 0; i < 10; i++){
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void percentilesOverWindows() throws Exception{
+        LatencyRecorder recorder = new LatencyRecorder(true, Duration.ofSeconds(10),
+                Arrays.asList(Duration.ofSeconds(20), Duration.ofSeconds(40)));
+        try {
+            for(int i = 1; i <= 1000; i++){
+                recorder.record("slow", TimeUnit.MILLISECONDS.toNanos(i));
+            }
+            recorder.rotate();
+            for(int i = 0; i < 3; i++){
+                recorder.record("slow", TimeUnit.MILLISECONDS.toNanos(1));
+                recorder.rotate();
+            }
+
+            //20초 창에는 마지막 두 구간만, 40초 창에는 처음 구간까지 들어간다
+            Map<String, Object> slow = metric(recorder, "slow");
+            Assertions.assertThat(window(slow, "PT20S").get("count")).isEqualTo(2L);
+            Assertions.assertThat(window(slow, "PT40S").get("count")).isEqualTo(1003L);
+            Assertions.assertThat((Long) window(slow, "PT40S").get("p50")).isBetween(490_000L, 510_000L);
+            Assertions.assertThat((Long) window(slow, "PT40S").get("p99")).isBetween(980_000L, 1_000_000L);
+            Assertions.assertThat(slow.get("allTimeCount")).isEqualTo(1003L);
+
+            //다음 구간에서 처음 구간이 밀려난다
+            recorder.rotate();
+            Assertions.assertThat(window(metric(recorder, "slow"), "PT40S").get("count")).isEqualTo(3L);
+        } finally {
+            recorder.destroy();
+        }
+    }
+
+    @Test
+    void endpointAndRepositoryLatency() throws Exception{
+        mockMvc.perform(get("/v1/members").param("teamName", "teamA"))
+                .andExpect(status().isOk());
+        memberRepository.findByUsername("member1");
+        latencyRecorder.rotate();
+
+        Map<String, Object> metrics = metrics(latencyRecorder);
+        Assertions.assertThat(metrics).containsKeys(
+                "GET /v1/members",
+                "GET /v1/members [handler]",
+                "GET /v1/members [repository]",
+                "GET /v1/members [serialization]",
+                "MemberJpaRepository.search",
+                "MemberRepository.findByUsername");
+
+        //리포지토리 시간은 핸들러 시간 안에 들어간다
+        long handler = (Long) window(metric(latencyRecorder, "GET /v1/members [handler]"), "PT1M").get("max");
+        long repository = (Long) window(metric(latencyRecorder, "GET /v1/members [repository]"), "PT1M").get("max");
+        Assertions.assertThat(repository).isGreaterThan(0).isLessThanOrEqualTo(handler);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> metrics(LatencyRecorder recorder){
+        return (Map<String, Object>) recorder.snapshot().get("metrics");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> metric(LatencyRecorder recorder, String name){
+        return (Map<String, Object>) metrics(recorder).get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> window(Map<String, Object> metric, String window){
+        return (Map<String, Object>) metric.get(window);
+    }
+}
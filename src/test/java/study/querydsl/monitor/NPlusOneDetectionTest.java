@@ -0,0 +1,90 @@
+package study.querydsl.monitor;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "monitor.n-plus-one.sample-rate=1.0",
+        "monitor.n-plus-one.fail-on-detection=true"
+})
+@AutoConfigureMockMvc
+@Transactional
+class NPlusOneDetectionTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp(){
+        for(int i = 0; i < 5; i++){
+            em.persist(new Member("member" + i, i, null));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void failBeforeBodyIsWritten() throws Exception{
+        //응답을 쓰기 전에 실패해야 핸들러 예외로 올라온다. afterCompletion 에서 던지면 로그만 남는다
+        Assertions.assertThatThrownBy(() -> mockMvc.perform(get("/test/n-plus-one").param("count", "4")))
+                .hasRootCauseInstanceOf(IllegalStateException.class)
+                .hasStackTraceContaining("N+1 detected in GET /test/n-plus-one");
+    }
+
+    @Test
+    void passBelowThreshold() throws Exception{
+        mockMvc.perform(get("/test/n-plus-one").param("count", "1"))
+                .andExpect(status().isOk());
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RepeatedQueryController repeatedQueryController(MemberJpaRepository memberJpaRepository){
+            return new RepeatedQueryController(memberJpaRepository);
+        }
+    }
+
+    //컴포넌트 스캔에 걸리지 않도록 @RestController 대신 @RequestMapping 으로 핸들러 등록
+    @RequestMapping("/test")
+    @ResponseBody
+    static class RepeatedQueryController {
+        private final MemberJpaRepository memberJpaRepository;
+
+        RepeatedQueryController(MemberJpaRepository memberJpaRepository) {
+            this.memberJpaRepository = memberJpaRepository;
+        }
+
+        @GetMapping("/n-plus-one")
+        public List<String> repeated(@RequestParam int count){
+            List<String> usernames = new ArrayList<>();
+            for(int i = 0; i < count; i++){
+                memberJpaRepository.findByUsername("member" + i).forEach(m -> usernames.add(m.getUsername()));
+            }
+            return usernames;
+        }
+    }
+}
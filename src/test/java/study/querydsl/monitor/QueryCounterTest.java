@@ -0,0 +1,106 @@
+package study.querydsl.monitor;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class QueryCounterTest {
+    @Autowired
+    EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    void setUp(){
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        Team teamC = new Team("teamC");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(teamC);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamB));
+        em.persist(new Member("member3", 30, teamC));
+
+        em.flush();
+        em.clear();
+    }
+
+    @AfterEach
+    void tearDown(){
+        QueryCounter.stop();
+    }
+
+    @Test
+    void detectRepeatedSelect() throws Exception{
+        //given
+        QueryCounter.start();
+
+        //when
+        List<Team> teams = queryFactory.selectFrom(team).fetch();
+        teams.forEach(t -> queryFactory
+                .selectFrom(member)
+                .where(member.team.eq(t))
+                .fetch());
+
+        //then
+        QueryCountContext context = QueryCounter.stop();
+        Assertions.assertThat(context.getCount()).isEqualTo(4);
+
+        List<RepeatedStatement> repeated = context.getRepeatedSelects(2);
+        Assertions.assertThat(repeated).hasSize(1);
+        Assertions.assertThat(repeated.get(0).getCount()).isEqualTo(3);
+        Assertions.assertThat(repeated.get(0).getCallStack())
+                .anyMatch(frame -> frame.contains(QueryCounterTest.class.getName()));
+    }
+
+    @Test
+    void batchFetchLoadsTeamsAtOnce() throws Exception{
+        //given
+        QueryCounter.start();
+
+        //when
+        List<Member> members = queryFactory.selectFrom(member).fetch();
+        members.forEach(m -> m.getTeam().getName());
+
+        //then
+        QueryCountContext context = QueryCounter.stop();
+        Assertions.assertThat(context.getCount()).isEqualTo(2);
+        Assertions.assertThat(context.getRepeatedSelects(2)).isEmpty();
+    }
+
+    @Test
+    void fetchJoinHasNoRepeatedStatement() throws Exception{
+        //given
+        QueryCounter.start();
+
+        //when
+        List<Member> members = queryFactory
+                .selectFrom(member)
+                .join(member.team, team).fetchJoin()
+                .fetch();
+        members.forEach(m -> m.getTeam().getName());
+
+        //then
+        QueryCountContext context = QueryCounter.stop();
+        Assertions.assertThat(context.getCount()).isEqualTo(1);
+        Assertions.assertThat(context.getRepeatedSelects(2)).isEmpty();
+    }
+}
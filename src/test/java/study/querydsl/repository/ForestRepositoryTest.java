@@ -0,0 +1,105 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.ForestStatsDto;
+import study.querydsl.dto.TreeLeafCountDto;
+import study.querydsl.entity.test.Forest;
+import study.querydsl.entity.test.Leaf;
+import study.querydsl.entity.test.Tree;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+@SpringBootTest
+@Transactional
+class ForestRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    ForestRepository forestRepository;
+
+    Forest forestA;
+    Forest forestB;
+    Forest empty;
+
+    @BeforeEach
+    void setUp(){
+        forestA = new Forest("forestA");
+        forestB = new Forest("forestB");
+        empty = new Forest("empty");
+        em.persist(forestA);
+        em.persist(forestB);
+        em.persist(empty);
+
+        //treeN 은 잎이 N 개
+        for(int i = 0; i < 6; i++){
+            Tree tree = new Tree("tree" + i);
+            em.persist(tree);
+            if(i % 2 == 0) forestA.addTree(tree);
+            else forestB.addTree(tree);
+
+            for(int j = 0; j < i; j++){
+                Leaf leaf = new Leaf("leaf" + i + j);
+                em.persist(leaf);
+                tree.addLeaf(leaf);
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void forestStats() throws Exception{
+        QueryCounter.start();
+        List<ForestStatsDto> stats = forestRepository.forestStats();
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(context.getCount()).isEqualTo(1);
+        Assertions.assertThat(stats).extracting("forestName", "treeCount", "leafCount").containsExactly(
+                Assertions.tuple("forestA", 3L, 6L),
+                Assertions.tuple("forestB", 3L, 9L),
+                Assertions.tuple("empty", 0L, 0L));
+        Assertions.assertThat(forestRepository.forestStats(forestB.getId()))
+                .get().extracting("leafCount").isEqualTo(9L);
+    }
+
+    @Test
+    void topTreesByLeafCount() throws Exception{
+        List<TreeLeafCountDto> top = forestRepository.topTreesByLeafCount(forestA.getId(), 2);
+        Assertions.assertThat(top).extracting("treeName", "leafCount").containsExactly(
+                Assertions.tuple("tree4", 4L),
+                Assertions.tuple("tree2", 2L));
+
+        QueryCounter.start();
+        Map<Long, List<TreeLeafCountDto>> perForest = forestRepository.topTreesByLeafCount(
+                List.of(forestA.getId(), forestB.getId(), empty.getId()), 2);
+        QueryCountContext context = QueryCounter.stop();
+
+        //숲마다 limit 을 건 쿼리 하나
+        Assertions.assertThat(context.getCount()).isEqualTo(3);
+        Assertions.assertThat(context.getStatements()).allMatch(sql -> sql.contains(" limit "));
+        Assertions.assertThat(perForest.get(forestA.getId())).isEqualTo(top);
+        Assertions.assertThat(perForest.get(forestB.getId())).extracting("treeName").containsExactly("tree5", "tree3");
+        Assertions.assertThat(perForest.get(empty.getId())).isEmpty();
+    }
+
+    @Test
+    void topTreesRejectsTooManyForests() throws Exception{
+        List<Long> forestIds = LongStream.rangeClosed(1, 101).boxed().collect(Collectors.toList());
+
+        Assertions.assertThatThrownBy(() -> forestRepository.topTreesByLeafCount(forestIds, 2))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+}
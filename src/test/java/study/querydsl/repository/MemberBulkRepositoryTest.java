@@ -0,0 +1,135 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberUpsertDto;
+import study.querydsl.dto.UpsertResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SpringBootTest
+@Transactional
+class MemberBulkRepositoryTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void upsertTest() throws Exception{
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+
+        List<MemberUpsertDto> records = new ArrayList<>();
+        records.add(new MemberUpsertDto("member1", 11, "teamB"));
+        for(int i = 2; i <= 2500; i++){
+            records.add(new MemberUpsertDto("member" + i, i % 100, i % 2 == 0 ? "teamA" : "teamB"));
+        }
+
+        //when
+        UpsertResult result = memberBulkRepository.upsert(records);
+
+        //then
+        Assertions.assertThat(result.getInserted()).isEqualTo(2499);
+        Assertions.assertThat(result.getUpdated()).isEqualTo(1);
+        Assertions.assertThat(result.getTeamsCreated()).isEqualTo(1);
+
+        Member findMember = memberRepository.findByUsername("member1").get(0);
+        Assertions.assertThat(findMember.getId()).isEqualTo(member1.getId());
+        Assertions.assertThat(findMember.getAge()).isEqualTo(11);
+        Assertions.assertThat(findMember.getTeam().getName()).isEqualTo("teamB");
+        Assertions.assertThat(memberRepository.count()).isEqualTo(2500);
+    }
+
+    @Test
+    void updateCountsEveryDuplicateRow() throws Exception{
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member dup1 = new Member("dup", 10, teamA);
+        Member dup2 = new Member("dup", 20, teamA);
+        Member other = new Member("other", 30, teamA);
+        em.persist(dup1);
+        em.persist(dup2);
+        em.persist(other);
+
+        UpsertResult result = memberBulkRepository.upsert(List.of(new MemberUpsertDto("dup", 40, "teamA")));
+
+        Assertions.assertThat(result.getUpdated()).isEqualTo(2);
+        Assertions.assertThat(result.getInserted()).isZero();
+        //JDBC 로 바뀐 회원만 준영속이 되고, 호출한 쪽의 다른 엔티티는 그대로 관리된다
+        Assertions.assertThat(em.contains(dup1)).isFalse();
+        Assertions.assertThat(em.contains(dup2)).isFalse();
+        Assertions.assertThat(em.contains(other)).isTrue();
+        Assertions.assertThat(em.contains(teamA)).isTrue();
+        Assertions.assertThat(memberRepository.findByUsername("dup")).extracting("age").containsOnly(40);
+    }
+
+    @Test
+    void rejectMissingUsername() throws Exception{
+        List<MemberUpsertDto> records = new ArrayList<>();
+        records.add(new MemberUpsertDto("member1", 10, null));
+        records.add(new MemberUpsertDto(null, 20, null));
+
+        //@Repository 라서 InvalidDataAccessApiUsageException 으로 바뀌어 나온다
+        Assertions.assertThatThrownBy(() -> memberBulkRepository.upsert(records))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("records[1]");
+        Assertions.assertThat(memberRepository.count()).isZero();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void concurrentUpsertOfNewUsername() throws Exception{
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UpsertResult>> futures = new ArrayList<>();
+        for(int i = 0; i < threads; i++){
+            int age = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return memberBulkRepository.upsert(List.of(new MemberUpsertDto("racer", age, null)));
+            }));
+        }
+        start.countDown();
+
+        try {
+            int inserted = 0;
+            for(Future<UpsertResult> future : futures){
+                inserted += future.get().getInserted();
+            }
+            Long count = em.createQuery("select count(m) from Member m where m.username = 'racer'", Long.class)
+                    .getSingleResult();
+
+            Assertions.assertThat(inserted).isEqualTo(1);
+            Assertions.assertThat(count).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+            transactionTemplate.executeWithoutResult(status ->
+                    em.createQuery("delete from Member m where m.username = 'racer'").executeUpdate());
+        }
+    }
+}
@@ -6,13 +6,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
+import study.querydsl.repository.support.InvalidSortException;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
 import java.util.List;
 
 @SpringBootTest
@@ -100,4 +106,146 @@ public class MemberRepositoryTest {
         Assertions.assertThat(result.getSize()).isEqualTo(3);
         Assertions.assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
+
+    @Test
+    void searchPageSortTest() throws Exception{
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 20, teamA));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 20, teamA));
+
+        //when
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age"));
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(new MemberSearchCondition(), pageRequest);
+
+        //then
+        Assertions.assertThat(result.getContent()).extracting("username")
+                .containsExactly("member1", "member3", "member2");
+        Assertions.assertThatThrownBy(() -> memberRepository.searchPageComplex(new MemberSearchCondition(),
+                        PageRequest.of(0, 3, Sort.by("teamName"))))
+                .isInstanceOf(InvalidSortException.class);
+    }
+
+    @Test
+    void loadMembersForTeamsTest() throws Exception{
+        //given
+        List<Team> teams = createTeams();
+
+        //when
+        QueryCounter.start();
+        List<Team> loaded = memberRepository.loadMembersForTeams(teams);
+        int memberCount = loaded.stream().mapToInt(t -> t.getMembers().size()).sum();
+        QueryCountContext context = QueryCounter.stop();
+
+        //then
+        Assertions.assertThat(memberCount).isEqualTo(6);
+        Assertions.assertThat(context.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void batchFetchMembersTest() throws Exception{
+        //given
+        List<Team> teams = createTeams();
+
+        //when
+        QueryCounter.start();
+        int memberCount = teams.stream().mapToInt(t -> t.getMembers().size()).sum();
+        QueryCountContext context = QueryCounter.stop();
+
+        //then
+        Assertions.assertThat(memberCount).isEqualTo(6);
+        Assertions.assertThat(context.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void searchBatchTest() throws Exception{
+        //given
+        createTeams();
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for(int i = 0; i < 3; i++){
+            conditions.add(MemberSearchCondition.builder().username("member" + i + "a").build());
+            conditions.add(MemberSearchCondition.builder().teamName("team" + i).build());
+            conditions.add(MemberSearchCondition.builder().teamName("team" + i).ageGoe(15).build());
+        }
+        conditions.add(MemberSearchCondition.builder().ageGoe(5).ageLoe(12).build());
+        conditions.add(MemberSearchCondition.builder().ageGoe(11).ageLoe(30).build());
+        conditions.add(MemberSearchCondition.builder().username("nobody").build());
+
+        //when
+        QueryCounter.start();
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(conditions);
+        QueryCountContext context = QueryCounter.stop();
+
+        //then
+        Assertions.assertThat(context.getCount()).isEqualTo(1);
+        Assertions.assertThat(result).hasSize(conditions.size());
+        for(int i = 0; i < conditions.size(); i++){
+            Assertions.assertThat(result.get(i))
+                    .containsExactlyInAnyOrderElementsOf(memberRepository.search(conditions.get(i)));
+        }
+    }
+
+    @Test
+    void searchBatchWithoutMatchableConditions() throws Exception{
+        //뒤집힌 나이 구간만 있으면 합친 조건이 비므로 전체 조회가 되지 않아야 한다
+        List<MemberSearchCondition> conditions = List.of(
+                MemberSearchCondition.builder().ageGoe(1).ageLoe(0).build(),
+                MemberSearchCondition.builder().ageGoe(50).ageLoe(40).build());
+
+        QueryCounter.start();
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(conditions);
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(context.getCount()).isZero();
+        Assertions.assertThat(result).hasSize(2).allMatch(List::isEmpty);
+    }
+
+    @Test
+    void findByUsernameIgnoreCaseUsesIndex() throws Exception{
+        //given
+        em.persist(new Member("Member1", 10, null));
+        em.persist(new Member("MEMBER1", 20, null));
+        em.persist(new Member("member2", 30, null));
+        em.flush();
+        em.clear();
+
+        //when
+        QueryCounter.start();
+        List<Member> result = memberRepository.findByUsernameIgnoreCase("mEmBeR1");
+        QueryCountContext context = QueryCounter.stop();
+
+        //then
+        Assertions.assertThat(result).extracting("username").containsExactlyInAnyOrder("Member1", "MEMBER1");
+        Assertions.assertThat(result).extracting("usernameLower").containsOnly("member1");
+
+        //실제로 나간 SQL 의 실행 계획이 생성 컬럼 인덱스를 써야 한다
+        String plan = explain(context.getStatements().get(0), "member1");
+        Assertions.assertThat(plan).containsIgnoringCase("idx_member_username_lower");
+
+        //lower(username) 조건은 같은 결과를 내지만 인덱스를 쓰지 못한다
+        String functionPlan = explain("select member_id from member where lower(username) = ?", "member1");
+        Assertions.assertThat(functionPlan.toLowerCase()).doesNotContain("idx_member_username");
+    }
+
+    private String explain(String sql, Object... parameters){
+        Query query = em.createNativeQuery("explain " + sql);
+        for(int i = 0; i < parameters.length; i++){
+            query.setParameter(i + 1, parameters[i]);
+        }
+        return String.valueOf(query.getResultList().get(0));
+    }
+
+    private List<Team> createTeams() {
+        for(int i = 0; i<3; i++){
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i + "a", 10, team));
+            em.persist(new Member("member" + i + "b", 20, team));
+        }
+        em.flush();
+        em.clear();
+        return em.createQuery("select t from Team t", Team.class).getResultList();
+    }
 }
@@ -0,0 +1,190 @@
+package study.querydsl.repository.cache;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.StringCollation;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SpringBootTest
+class MemberCacheTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberCache memberCache;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Long memberId;
+    Long teamBId;
+
+    @BeforeEach
+    void setUp(){
+        memberCache.invalidateAll();
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member = new Member("cached", 10, teamA);
+            em.persist(member);
+            memberId = member.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        memberCache.invalidateAll();
+    }
+
+    @Test
+    void cacheHit() throws Exception{
+        memberRepository.findSnapshotById(memberId);
+        memberRepository.findSnapshotsByUsername("cached");
+
+        QueryCounter.start();
+        MemberTeamDto findMember = memberRepository.findSnapshotById(memberId).get();
+        MemberTeamDto findByUsername = memberRepository.findSnapshotsByUsername("cached").get(0);
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(context.getCount()).isEqualTo(0);
+        Assertions.assertThat(findMember.getTeamName()).isEqualTo("teamA");
+        Assertions.assertThat(findByUsername.getMemberId()).isEqualTo(memberId);
+    }
+
+    @Test
+    void repositoryFindersBypassCache() throws Exception{
+        memberRepository.findSnapshotById(memberId);
+
+        //findById 는 JPA 그대로라서 같은 영속성 컨텍스트의 엔티티를 돌려준다
+        transactionTemplate.executeWithoutResult(status -> {
+            Member found = em.find(Member.class, memberId);
+            Assertions.assertThat(memberRepository.findById(memberId).get()).isSameAs(found);
+            Assertions.assertThat(memberRepository.findByUsername("cached")).containsExactly(found);
+            Assertions.assertThat(found.getTeam().getMembers()).containsExactly(found);
+        });
+    }
+
+    @Test
+    void evictOnChangeTeam() throws Exception{
+        memberRepository.findSnapshotById(memberId);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member = em.find(Member.class, memberId);
+            member.changeTeam(em.find(Team.class, teamBId));
+        });
+
+        MemberTeamDto findMember = memberRepository.findSnapshotById(memberId).get();
+        Assertions.assertThat(findMember.getTeamName()).isEqualTo("teamB");
+    }
+
+    @Test
+    void evictOnBulkUpdate() throws Exception{
+        memberRepository.findSnapshotsByUsername("cached");
+
+        memberRepository.bulkAgePlus(0);
+
+        MemberTeamDto findMember = memberRepository.findSnapshotsByUsername("cached").get(0);
+        Assertions.assertThat(findMember.getAge()).isEqualTo(11);
+    }
+
+    @Test
+    void copyPerCaller() throws Exception{
+        memberRepository.findSnapshotById(memberId);
+
+        MemberTeamDto first = memberRepository.findSnapshotById(memberId).get();
+        first.setAge(99);
+        first.setTeamName("changed");
+        MemberTeamDto second = memberRepository.findSnapshotById(memberId).get();
+
+        //캐시에서 나온 객체는 호출마다 새로 만들어서 서로 영향을 주지 않는다
+        Assertions.assertThat(second).isNotSameAs(first);
+        Assertions.assertThat(second.getAge()).isEqualTo(10);
+        Assertions.assertThat(second.getTeamName()).isEqualTo("teamA");
+    }
+
+    @Test
+    void discardLoadRacingEviction() throws Exception{
+        MemberCache cache = new MemberCache(true, 100, Duration.ofMinutes(10), new StringCollation(false));
+        Member member = new Member("racer", 10, null);
+        member.setId(1L);
+
+        //읽는 도중에 지워지면 읽은 값은 돌려주기만 하고 담지 않는다
+        cache.getById(1L, id -> {
+            cache.evict(member);
+            return Optional.of(new MemberTeamDto(1L, "racer", 10, null, null));
+        });
+        cache.getByUsername("racer", () -> {
+            cache.evict(member);
+            return List.of(new MemberTeamDto(1L, "racer", 10, null, null));
+        });
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        cache.getByUsername("racer", () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+        Assertions.assertThat(loads.get()).isEqualTo(2);
+        Assertions.assertThat(cache.stats().get("discarded")).isEqualTo(2L);
+    }
+
+    @Test
+    void usernameKeysFollowCollation() throws Exception{
+        MemberCache cache = new MemberCache(true, 100, Duration.ofMinutes(10), new StringCollation(true));
+        Member member = new Member("member1", 10, null);
+        member.setId(1L);
+
+        cache.getByUsername("Member1 ", () -> List.of(new MemberTeamDto(1L, "member1", 10, null, null)));
+        //대소문자와 뒤 공백만 다른 이름은 같은 항목이다
+        Assertions.assertThat(cache.getByUsername("member1", List::of)).hasSize(1);
+
+        cache.evict(member);
+        Assertions.assertThat(cache.getByUsername("MEMBER1", List::of)).isEmpty();
+    }
+
+    @Test
+    void usernameIndexFollowsEviction() throws Exception{
+        MemberCache cache = new MemberCache(true, 2, Duration.ofMinutes(10), new StringCollation(false));
+
+        for(long i = 1; i <= 5; i++){
+            MemberTeamDto dto = new MemberTeamDto(i, "member" + i, 10, null, null);
+            cache.getByUsername(dto.getUsername(), () -> List.of(dto));
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> byUsername = (Map<String, Object>) cache.stats().get("byUsername");
+        Assertions.assertThat((int) cache.stats().get("usernameIndexSize"))
+                .isEqualTo(((Number) byUsername.get("size")).intValue())
+                .isLessThanOrEqualTo(2);
+    }
+}
@@ -0,0 +1,220 @@
+package study.querydsl.repository.cache;
+
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.test.Forest;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+import study.querydsl.repository.change.ChangeEvent;
+import study.querydsl.repository.change.ChangeFeed;
+import study.querydsl.repository.change.ChangeSubscriber;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest(properties = "query.result-cache.enabled=true")
+class QueryResultCacheTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    QueryResultCache queryResultCache;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    LinkedBlockingQueue<ChangeEvent> received = new LinkedBlockingQueue<>();
+    ChangeSubscriber probe = received::addAll;
+
+    @BeforeEach
+    void setUp() throws Exception{
+        changeFeed.subscribe(probe);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for(int i = 0; i < 10; i++){
+                em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+        drain();
+        queryResultCache.invalidateAll();
+    }
+
+    @AfterEach
+    void tearDown(){
+        changeFeed.unsubscribe(probe);
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            em.createQuery("delete from Forest").executeUpdate();
+        });
+        queryResultCache.invalidateAll();
+    }
+
+    @Test
+    void cacheHitBySameQueryAndParameters() throws Exception{
+        MemberSearchCondition condition = condition("teamA", 12);
+        List<MemberTeamDto> first = memberTestRepository.searchCached(condition);
+
+        QueryCounter.start();
+        List<MemberTeamDto> second = memberTestRepository.searchCached(condition("teamA", 12));
+        List<MemberTeamDto> other = memberTestRepository.searchCached(condition("teamB", 12));
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(second).isEqualTo(first);
+        Assertions.assertThat(first).extracting("username").containsExactlyInAnyOrder("member2", "member4", "member6", "member8");
+        Assertions.assertThat(other).extracting("teamName").containsOnly("teamB");
+        //다른 파라미터는 다른 키
+        Assertions.assertThat(context.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pageAndCountAreCached() throws Exception{
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by("age"));
+        Page<MemberTeamDto> first = memberTestRepository.searchPageCached(new MemberSearchCondition(), pageRequest);
+
+        QueryCounter.start();
+        Page<MemberTeamDto> second = memberTestRepository.searchPageCached(new MemberSearchCondition(), pageRequest);
+        Page<MemberTeamDto> next = memberTestRepository.searchPageCached(new MemberSearchCondition(), pageRequest.next());
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(second.getContent()).isEqualTo(first.getContent());
+        Assertions.assertThat(second.getTotalElements()).isEqualTo(10);
+        Assertions.assertThat(next.getContent()).extracting("age").containsExactly(13, 14, 15);
+        //다음 페이지는 offset 이 달라 내용만 새로 읽고 count 는 재사용한다
+        Assertions.assertThat(context.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictOnMemberWrite() throws Exception{
+        MemberSearchCondition condition = condition("teamA", 12);
+        memberTestRepository.searchCached(condition);
+
+        //디스패처를 기다리지 않아도 커밋이 반환되면 이미 비워져 있다
+        memberRepository.bulkAgePlus(0);
+
+        List<MemberTeamDto> result = memberTestRepository.searchCached(condition);
+        Assertions.assertThat(result).extracting("age").containsExactlyInAnyOrder(13, 15, 17, 19);
+    }
+
+    @Test
+    void evictBeforeCommitReturns() throws Exception{
+        MemberSearchCondition condition = condition("teamA", 12);
+        memberTestRepository.searchCached(condition);
+
+        transactionTemplate.executeWithoutResult(status -> em
+                .createQuery("select m from Member m where m.username = 'member2'", Member.class)
+                .getSingleResult()
+                .setAge(99));
+
+        List<MemberTeamDto> result = memberTestRepository.searchCached(condition);
+        Assertions.assertThat(result).extracting("age").contains(99);
+    }
+
+    @Test
+    void unrelatedWriteKeepsEntries() throws Exception{
+        memberTestRepository.searchCached(condition("teamA", 12));
+
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Forest("forest")));
+        drain();
+
+        QueryCounter.start();
+        memberTestRepository.searchCached(condition("teamA", 12));
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(context.getCount()).isEqualTo(0);
+    }
+
+    @Test
+    void bypassInReadWriteTransaction() throws Exception{
+        memberTestRepository.searchCached(condition("teamA", 12));
+
+        List<MemberTeamDto> result = transactionTemplate.execute(status -> {
+            em.persist(new Member("member10", 30, em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult()));
+            em.flush();
+            return memberTestRepository.searchCached(condition("teamA", 12));
+        });
+
+        Assertions.assertThat(result).extracting("username").contains("member10");
+    }
+
+    @Test
+    void collectEntityTypes() throws Exception{
+        QMember memberSub = new QMember("memberSub");
+        Set<Class<?>> types = QueryResultCache.entityTypesOf(new JPAQuery<Void>()
+                .select(member.username)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.gt(JPAExpressions.select(memberSub.age.avg()).from(memberSub)))
+                .getMetadata());
+        Set<Class<?>> teamTypes = QueryResultCache.entityTypesOf(new JPAQuery<Void>()
+                .select(team.name)
+                .from(team)
+                .getMetadata());
+
+        Assertions.assertThat(types).containsExactlyInAnyOrder(Member.class, Team.class);
+        Assertions.assertThat(teamTypes).containsExactly(Team.class);
+    }
+
+    @Test
+    void rejectEntityProjection() throws Exception{
+        Assertions.assertThatThrownBy(() -> queryResultCache.fetch(new JPAQuery<>(em).select(member).from(member)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private MemberSearchCondition condition(String teamName, int ageGoe){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+
+    //변경 배달은 커밋 뒤 별도 스레드에서 이뤄지므로 표식 이벤트가 도착할 때까지 기다린다
+    //빈 구독자가 먼저 배달받으므로 표식이 오면 캐시도 앞선 변경을 모두 받은 상태다
+    private void drain() throws InterruptedException{
+        changeFeed.bulkChanged(QueryResultCacheTest.class);
+        ChangeEvent marker = ChangeEvent.bulk(QueryResultCacheTest.class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(System.nanoTime() < deadline){
+            ChangeEvent event = received.poll(100, TimeUnit.MILLISECONDS);
+            if(marker.equals(event)){
+                return;
+            }
+        }
+        throw new IllegalStateException("change feed was not drained");
+    }
+}
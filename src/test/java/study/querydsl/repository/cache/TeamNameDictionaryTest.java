@@ -0,0 +1,138 @@
+package study.querydsl.repository.cache;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+@SpringBootTest(properties = "member.search.team-name-dictionary.enabled=true")
+class TeamNameDictionaryTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamNameDictionary teamNames;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Long teamAId;
+
+    @BeforeEach
+    void setUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamB));
+            em.persist(new Member("member3", 30, null));
+            teamAId = teamA.getId();
+        });
+        teamNames.reload();
+    }
+
+    @AfterEach
+    void tearDown(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void searchWithoutJoin() throws Exception{
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        QueryCounter.start();
+        List<MemberTeamDto> all = memberRepository.search(new MemberSearchCondition());
+        List<MemberTeamDto> teamB = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getContent();
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(all).extracting("username", "teamName").containsExactlyInAnyOrder(
+                Assertions.tuple("member1", "teamA"),
+                Assertions.tuple("member2", "teamB"),
+                Assertions.tuple("member3", null));
+        Assertions.assertThat(teamB).extracting("username").containsExactly("member2");
+        Assertions.assertThat(context.getStatements()).noneMatch(sql -> sql.contains(" join "));
+    }
+
+    @Test
+    void searchBatchWithoutJoin() throws Exception{
+        List<MemberSearchCondition> conditions = List.of(
+                MemberSearchCondition.builder().teamName("teamA").build(),
+                MemberSearchCondition.builder().username("member2").build(),
+                MemberSearchCondition.builder().teamName("teamB").ageGoe(30).build());
+
+        QueryCounter.start();
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(conditions);
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(result.get(0)).extracting("username").containsExactly("member1");
+        Assertions.assertThat(result.get(1)).extracting("teamName").containsExactly("teamB");
+        Assertions.assertThat(result.get(2)).isEmpty();
+        Assertions.assertThat(context.getCount()).isEqualTo(1);
+        Assertions.assertThat(context.getStatements()).noneMatch(sql -> sql.contains(" join "));
+    }
+
+    @Test
+    void reloadOnTeamChange() throws Exception{
+        Assertions.assertThat(teamNames.nameOf(teamAId)).isEqualTo("teamA");
+
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamAId).setName("renamed"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while(!"renamed".equals(teamNames.nameOf(teamAId)) && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+        Assertions.assertThat(teamNames.nameOf(teamAId)).isEqualTo("renamed");
+        Assertions.assertThat(memberRepository.search(new MemberSearchCondition()))
+                .filteredOn(dto -> "member1".equals(dto.getUsername()))
+                .extracting("teamName").containsExactly("renamed");
+    }
+
+    @Test
+    void newTeamVisibleRightAfterCommit() throws Exception{
+        //사전이 다시 읽히기 전이라도 버전이 낡았으면 조인으로 조회한다
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamC = new Team("teamC");
+            em.persist(teamC);
+            em.persist(new Member("member4", 40, teamC));
+        });
+
+        List<MemberTeamDto> result = memberRepository.search(MemberSearchCondition.builder().teamName("teamC").build());
+
+        Assertions.assertThat(result).extracting("username", "teamName")
+                .containsExactly(Assertions.tuple("member4", "teamC"));
+    }
+
+    @Test
+    void missDoesNotQueryInline() throws Exception{
+        //행 매핑 중에 불리므로 없는 팀이어도 호출한 스레드에서 쿼리를 내지 않는다
+        QueryCounter.start();
+        String name = teamNames.nameOf(-1L);
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(name).isNull();
+        Assertions.assertThat(context.getCount()).isZero();
+    }
+}
@@ -0,0 +1,185 @@
+package study.querydsl.repository.change;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QTeam;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+@SpringBootTest
+class ChangeFeedTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    LinkedBlockingQueue<ChangeEvent> received = new LinkedBlockingQueue<>();
+    ChangeSubscriber subscriber = received::addAll;
+
+    @BeforeEach
+    void setUp(){
+        changeFeed.subscribe(subscriber);
+    }
+
+    @AfterEach
+    void tearDown(){
+        changeFeed.unsubscribe(subscriber);
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void publishCommittedChanges() throws Exception{
+        Long memberId = transactionTemplate.execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            Member member = new Member("member1", 10, team);
+            em.persist(member);
+            em.flush();
+            member.setAge(20);
+            em.flush();
+            return member.getId();
+        });
+
+        List<ChangeEvent> events = await(2);
+        Assertions.assertThat(events).contains(ChangeEvent.upsert(Member.class, memberId));
+        Assertions.assertThat(events).filteredOn(e -> e.getEntityType() == Member.class).hasSize(1);
+    }
+
+    @Test
+    void discardRolledBackChanges() throws Exception{
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Team("rollback"));
+            em.flush();
+            status.setRollbackOnly();
+        });
+        memberRepository.bulkAgePlus(0);
+
+        Assertions.assertThat(await(1)).containsExactly(ChangeEvent.bulk(Member.class));
+    }
+
+    @Test
+    void bulkUpdateThroughQueryFactory() throws Exception{
+        //호출하는 쪽이 알리지 않아도 queryFactory.update/delete 는 BULK 로 전달된다
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(QTeam.team)
+                .set(QTeam.team.name, "renamed")
+                .execute());
+        Assertions.assertThat(await(1)).containsExactly(ChangeEvent.bulk(Team.class));
+
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .delete(QTeam.team)
+                .execute());
+        Assertions.assertThat(await(1)).containsExactly(ChangeEvent.bulk(Team.class));
+    }
+
+    @Test
+    void dispatcherStartsWithLifecycleAndParksWhenIdle() throws Exception{
+        ChangeFeed feed = new ChangeFeed(16, 16, new DefaultListableBeanFactory().getBeanProvider(ChangeSubscriber.class));
+        LinkedBlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+        feed.subscribe(events::addAll);
+
+        //시작 전에는 버퍼에만 쌓인다
+        feed.upserted(Member.class, 1L);
+        Assertions.assertThat(events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+
+        feed.start();
+        try {
+            Assertions.assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(ChangeEvent.upsert(Member.class, 1L));
+
+            //한가해지면 주기적으로 깨지 않고 잠든다
+            Thread dispatcher = awaitParked(feed);
+            Assertions.assertThat(dispatcher.getState()).isEqualTo(Thread.State.TIMED_WAITING);
+
+            //잠든 디스패처는 다음 이벤트가 바로 깨운다 (잠드는 최대 시간 1초보다 훨씬 빨리)
+            long started = System.nanoTime();
+            feed.upserted(Member.class, 2L);
+            Assertions.assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(ChangeEvent.upsert(Member.class, 2L));
+            Assertions.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(500);
+        } finally {
+            feed.stop();
+        }
+        Assertions.assertThat(feed.isRunning()).isFalse();
+    }
+
+    private static Thread awaitParked(ChangeFeed feed) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(System.currentTimeMillis() < deadline){
+            for(Thread thread : Thread.getAllStackTraces().keySet()){
+                if(LockSupport.getBlocker(thread) == feed){
+                    return thread;
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("change feed dispatcher did not park");
+    }
+
+    @Test
+    void coalesce() throws Exception{
+        List<ChangeEvent> events = ChangeFeed.coalesce(List.of(
+                ChangeEvent.upsert(Team.class, 1L),
+                ChangeEvent.upsert(Member.class, 1L),
+                ChangeEvent.upsert(Team.class, 1L),
+                ChangeEvent.bulk(Member.class),
+                ChangeEvent.delete(Member.class, 2L)));
+
+        Assertions.assertThat(events).containsExactly(ChangeEvent.upsert(Team.class, 1L), ChangeEvent.bulk(Member.class));
+    }
+
+    @Test
+    void ringBufferOverflow() throws Exception{
+        ChangeRingBuffer buffer = new ChangeRingBuffer(4);
+        for(long i = 0; i < 4; i++){
+            Assertions.assertThat(buffer.offer(ChangeEvent.upsert(Member.class, i))).isTrue();
+        }
+        Assertions.assertThat(buffer.offer(ChangeEvent.upsert(Member.class, 4L))).isFalse();
+
+        List<ChangeEvent> drained = new ArrayList<>();
+        buffer.drain(drained::add, 10);
+        Assertions.assertThat(drained).extracting("id").containsExactly(0L, 1L, 2L, 3L);
+        Assertions.assertThat(buffer.offer(ChangeEvent.upsert(Member.class, 4L))).isTrue();
+    }
+
+    private List<ChangeEvent> await(int count) throws InterruptedException {
+        List<ChangeEvent> events = new ArrayList<>();
+        while(events.size() < count){
+            ChangeEvent event = received.poll(5, TimeUnit.SECONDS);
+            Assertions.assertThat(event).as("change event").isNotNull();
+            events.add(event);
+        }
+        //뒤늦게 도착하는 이벤트가 없는지 잠시 더 확인
+        ChangeEvent extra = received.poll(100, TimeUnit.MILLISECONDS);
+        if(extra != null){
+            events.add(extra);
+        }
+        return events;
+    }
+}
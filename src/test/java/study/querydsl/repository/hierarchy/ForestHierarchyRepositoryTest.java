@@ -0,0 +1,175 @@
+package study.querydsl.repository.hierarchy;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.HierarchyNodeDto;
+import study.querydsl.entity.test.Forest;
+import study.querydsl.entity.test.HierarchyNodeType;
+import study.querydsl.entity.test.HierarchyPath;
+import study.querydsl.entity.test.Leaf;
+import study.querydsl.entity.test.Tree;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SpringBootTest(properties = "forest.hierarchy-index.enabled=true")
+class ForestHierarchyRepositoryTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    ForestHierarchyRepository hierarchyRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Long forestAId;
+    Long forestBId;
+    Long treeId;
+    List<Long> leafIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp(){
+        //커밋 직전에 색인되므로 트랜잭션을 커밋한다
+        transactionTemplate.executeWithoutResult(status -> {
+            Forest forestA = new Forest("forestA");
+            Forest forestB = new Forest("forestB");
+            em.persist(forestA);
+            em.persist(forestB);
+            for(int i = 0; i < 2; i++){
+                Tree tree = new Tree("tree" + i);
+                em.persist(tree);
+                forestA.addTree(tree);
+                for(int j = 0; j < 3; j++){
+                    Leaf leaf = new Leaf("leaf" + i + j);
+                    em.persist(leaf);
+                    tree.addLeaf(leaf);
+                    if(i == 0){
+                        leafIds.add(leaf.getId());
+                    }
+                }
+                if(i == 0){
+                    treeId = tree.getId();
+                }
+            }
+            forestAId = forestA.getId();
+            forestBId = forestB.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from HierarchyPath").executeUpdate();
+            em.createQuery("delete from Leaf").executeUpdate();
+            em.createQuery("delete from Tree").executeUpdate();
+            em.createQuery("delete from Forest").executeUpdate();
+        });
+    }
+
+    @Test
+    void descendantsAndAncestors() throws Exception{
+        QueryCounter.start();
+        List<HierarchyNodeDto> descendants = hierarchyRepository.descendantsOf(HierarchyNodeType.FOREST, forestAId);
+        List<Leaf> leaves = hierarchyRepository.leavesUnder(HierarchyNodeType.FOREST, forestAId);
+        List<HierarchyNodeDto> ancestors = hierarchyRepository.ancestorsOf(HierarchyNodeType.LEAF, leafIds.get(0));
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(context.getCount()).isEqualTo(3);
+        Assertions.assertThat(descendants).extracting("type").containsOnly(HierarchyNodeType.TREE, HierarchyNodeType.LEAF);
+        Assertions.assertThat(descendants).hasSize(8);
+        Assertions.assertThat(leaves).hasSize(6);
+        Assertions.assertThat(ancestors).extracting("id", "depth").containsExactly(
+                Assertions.tuple(treeId, 1),
+                Assertions.tuple(forestAId, 2));
+    }
+
+    @Test
+    void moveSubtree() throws Exception{
+        transactionTemplate.executeWithoutResult(status ->
+                em.find(Tree.class, treeId).setForest(em.find(Forest.class, forestBId)));
+
+        Assertions.assertThat(hierarchyRepository.leavesUnder(HierarchyNodeType.FOREST, forestBId)).extracting("id")
+                .containsExactlyElementsOf(leafIds);
+        Assertions.assertThat(hierarchyRepository.leavesUnder(HierarchyNodeType.FOREST, forestAId)).hasSize(3);
+        Assertions.assertThat(hierarchyRepository.ancestorsOf(HierarchyNodeType.LEAF, leafIds.get(0))).extracting("id")
+                .containsExactly(treeId, forestBId);
+    }
+
+    @Test
+    void renameDoesNotTouchIndex() throws Exception{
+        QueryCounter.start();
+        transactionTemplate.executeWithoutResult(status -> em.find(Leaf.class, leafIds.get(0)).setName("renamed"));
+        QueryCountContext context = QueryCounter.stop();
+
+        //조회와 갱신만 나간다
+        Assertions.assertThat(context.getCount()).isEqualTo(2);
+        Assertions.assertThat(context.getStatements()).noneMatch(sql -> sql.contains("hierarchy_path"));
+    }
+
+    @Test
+    void newNodesSkipIndexChecks() throws Exception{
+        QueryCounter.start();
+        transactionTemplate.executeWithoutResult(status -> {
+            Forest forest = em.find(Forest.class, forestBId);
+            for(int i = 0; i < 3; i++){
+                Tree tree = new Tree("newTree" + i);
+                em.persist(tree);
+                forest.addTree(tree);
+                for(int j = 0; j < 10; j++){
+                    Leaf leaf = new Leaf("newLeaf" + i + j);
+                    em.persist(leaf);
+                    tree.addLeaf(leaf);
+                }
+            }
+        });
+        QueryCountContext context = QueryCounter.stop();
+
+        //새 노드는 색인 여부를 묻지 않고, 부모 경로는 타입마다 한 번에 읽는다
+        Assertions.assertThat(context.getStatements())
+                .filteredOn(sql -> sql.startsWith("select") && sql.contains("hierarchy_path"))
+                .hasSize(2);
+        Assertions.assertThat(hierarchyRepository.leavesUnder(HierarchyNodeType.FOREST, forestBId)).hasSize(30);
+        Assertions.assertThat(hierarchyRepository.descendantsOf(HierarchyNodeType.FOREST, forestBId)).hasSize(33);
+    }
+
+    @Test
+    void nodesAreKeyedByType() throws Exception{
+        //다른 타입의 노드가 같은 id 를 갖더라도 섞이지 않는다
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new HierarchyPath(HierarchyNodeType.FOREST, treeId, HierarchyNodeType.FOREST, treeId, 0));
+            em.persist(new HierarchyPath(HierarchyNodeType.FOREST, treeId, HierarchyNodeType.LEAF, -1L, 1));
+        });
+
+        Assertions.assertThat(hierarchyRepository.descendantsOf(HierarchyNodeType.TREE, treeId)).extracting("id")
+                .containsExactlyElementsOf(leafIds);
+        Assertions.assertThat(hierarchyRepository.ancestorsOf(HierarchyNodeType.LEAF, leafIds.get(0))).extracting("type")
+                .containsExactly(HierarchyNodeType.TREE, HierarchyNodeType.FOREST);
+    }
+
+    @Test
+    void rebuildMatchesIncrementalIndex() throws Exception{
+        List<String> incremental = paths();
+
+        int rebuilt = transactionTemplate.execute(status -> hierarchyRepository.rebuild());
+
+        Assertions.assertThat(rebuilt).isEqualTo(incremental.size());
+        Assertions.assertThat(paths()).containsExactlyInAnyOrderElementsOf(incremental);
+    }
+
+    private List<String> paths(){
+        return transactionTemplate.execute(status ->
+                em.createQuery("select p from HierarchyPath p", HierarchyPath.class).getResultList().stream()
+                        .map(HierarchyPath::toString)
+                        .collect(Collectors.toList()));
+    }
+}
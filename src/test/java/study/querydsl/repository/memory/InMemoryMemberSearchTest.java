@@ -0,0 +1,137 @@
+package study.querydsl.repository.memory;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.StringCollation;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+@SpringBootTest(properties = "member.search.in-memory.enabled=true")
+class InMemoryMemberSearchTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    InMemoryMemberSearch inMemoryMemberSearch;
+
+    Long member4Id;
+    Long teamAId;
+
+    @BeforeEach
+    void setUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            Member member4 = new Member("member4", 40, teamB);
+            em.persist(member4);
+            member4Id = member4.getId();
+            teamAId = teamA.getId();
+        });
+        inMemoryMemberSearch.reload();
+    }
+
+    @AfterEach
+    void tearDown(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void searchWithoutQuery() throws Exception{
+        MemberSearchCondition condition = MemberSearchCondition.builder()
+                .ageGoe(35)
+                .ageLoe(40)
+                .teamName("teamB")
+                .build();
+
+        QueryCounter.start();
+        List<MemberTeamDto> result = memberRepository.search(condition);
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(context.getCount()).isZero();
+        Assertions.assertThat(result).extracting("username").containsExactly("member4");
+        Assertions.assertThat(result).extracting("teamName").containsExactly("teamB");
+    }
+
+    @Test
+    void followsEntityChanges() throws Exception{
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member4 = em.find(Member.class, member4Id);
+            member4.changeTeam(em.find(Team.class, teamAId));
+            em.persist(new Member("member5", 50, member4.getTeam()));
+        });
+
+        MemberSearchCondition condition = MemberSearchCondition.builder()
+                .teamName("teamA")
+                .build();
+        List<MemberTeamDto> result = memberRepository.search(condition);
+
+        Assertions.assertThat(result).extracting("username")
+                .containsExactly("member1", "member2", "member4", "member5");
+    }
+
+    @Test
+    void matchStringsLikeCollation() throws Exception{
+        MemberColumnStore store = new MemberColumnStore(new StringCollation(true));
+        store.putTeam(1L, "TeamA");
+        store.putTeam(2L, null);
+        store.putMember(1L, "Member1", 10, 1L);
+        store.putMember(2L, "member1 ", 20, 2L);
+        store.putMember(3L, "member2", 30, 1L);
+
+        MemberSearchCondition byUsername = MemberSearchCondition.builder().username("MEMBER1").build();
+        MemberSearchCondition byTeamName = MemberSearchCondition.builder().teamName("teama ").build();
+
+        //행마다 원래 값을 돌려주고, 이름 없는 팀이 있어도 실패하지 않는다
+        Assertions.assertThat(store.search(byUsername)).extracting("username").containsExactly("Member1", "member1 ");
+        Assertions.assertThat(store.search(byTeamName)).extracting("username").containsExactly("Member1", "member2");
+        //악센트는 맞추지 못하므로 DB 로 보낸다
+        Assertions.assertThat(store.canSearch(MemberSearchCondition.builder().username("mémber1").build())).isFalse();
+        Assertions.assertThat(new MemberColumnStore(new StringCollation(false))
+                .canSearch(MemberSearchCondition.builder().username("mémber1").build())).isTrue();
+    }
+
+    @Test
+    void compactRemovedRows() throws Exception{
+        MemberColumnStore store = new MemberColumnStore(new StringCollation(false));
+        for(long id = 0; id < 4096; id++){
+            store.putMember(id, "member" + id, (int) (id % 100), null);
+        }
+        for(long id = 0; id < 4000; id++){
+            store.removeMember(id);
+        }
+
+        Assertions.assertThat(store.size()).isEqualTo(96);
+        Assertions.assertThat(store.capacity()).isLessThan(4096);
+        Assertions.assertThat(store.search(MemberSearchCondition.builder().username("member4095").build()))
+                .extracting("memberId").containsExactly(4095L);
+        Assertions.assertThat(store.search(new MemberSearchCondition())).hasSize(96);
+    }
+}
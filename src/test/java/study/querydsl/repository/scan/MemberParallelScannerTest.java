@@ -0,0 +1,137 @@
+package study.querydsl.repository.scan;
+
+import com.querydsl.core.types.Projections;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.ScanPartitionReport;
+import study.querydsl.dto.ScanReport;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest(properties = {
+        "member.scan.threads=3",
+        "member.scan.partitions-per-thread=2",
+        "member.scan.chunk-size=7",
+        "member.scan.queue-capacity=2"
+})
+class MemberParallelScannerTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberParallelScanner scanner;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    List<Long> memberIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for(int i = 0; i < 200; i++){
+                Member member = new Member("member" + i, i, i % 2 == 0 ? teamA : teamB);
+                em.persist(member);
+                memberIds.add(member.getId());
+            }
+            //팀 없는 회원도 빠지면 안 된다
+            Member noTeam = new Member("noTeam", 1, null);
+            em.persist(noTeam);
+            memberIds.add(noTeam.getId());
+        });
+    }
+
+    @AfterEach
+    void tearDown(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void scanEveryRowOnce() throws Exception{
+        List<Long> scanned = new ArrayList<>();
+
+        ScanReport report = scanner.scan(Projections.constructor(MemberTeamDto.class,
+                        member.id, member.username, member.age, team.id, team.name),
+                null,
+                chunk -> chunk.forEach(dto -> scanned.add(dto.getMemberId())));
+
+        Assertions.assertThat(scanned).containsExactlyInAnyOrderElementsOf(memberIds);
+        Assertions.assertThat(report.getRows()).isEqualTo(201);
+        Assertions.assertThat(report.getPartitions()).hasSize(6);
+        Assertions.assertThat(report.getPartitions()).extracting(ScanPartitionReport::getRows)
+                .allMatch(rows -> rows > 0);
+        Assertions.assertThat(report.getPartitions().stream().mapToLong(ScanPartitionReport::getRows).sum())
+                .isEqualTo(201);
+    }
+
+    @Test
+    void scanWithPredicate() throws Exception{
+        List<String> teamNames = new ArrayList<>();
+
+        ScanReport report = scanner.scan(team.name, team.name.eq("teamA").and(member.age.goe(100)), teamNames::addAll);
+
+        Assertions.assertThat(report.getRows()).isEqualTo(50);
+        Assertions.assertThat(teamNames).hasSize(50).containsOnly("teamA");
+    }
+
+    @Test
+    void slowProcessorBlocksReaders() throws Exception{
+        ScanReport report = scanner.scan(member.id, null, chunk -> sleep(5));
+
+        //큐가 2칸뿐이라 읽는 쪽이 처리 쪽을 기다리게 된다
+        Assertions.assertThat(report.getRows()).isEqualTo(201);
+        Assertions.assertThat(report.getPartitions().stream().mapToLong(ScanPartitionReport::getBlockedMillis).sum())
+                .isGreaterThan(0);
+    }
+
+    @Test
+    void processorFailureStopsScan() throws Exception{
+        AtomicInteger chunks = new AtomicInteger();
+
+        Assertions.assertThatThrownBy(() -> scanner.scan(member.id, null, chunk -> {
+            if(chunks.incrementAndGet() == 3){
+                throw new IllegalStateException("boom");
+            }
+        })).hasMessage("boom");
+
+        //취소된 파티션은 더 읽지 않으므로 다음 스캔이 바로 돌아간다
+        Assertions.assertThat(scanner.scan(member.id, null, chunk -> {}).getRows()).isEqualTo(201);
+    }
+
+    @Test
+    void emptyScan() throws Exception{
+        ScanReport report = scanner.scan(member.id, member.age.gt(1000), chunk -> Assertions.fail("no rows"));
+
+        Assertions.assertThat(report.getRows()).isEqualTo(0);
+        Assertions.assertThat(report.getPartitions()).isEmpty();
+    }
+
+    private static void sleep(long millis){
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.repository.shard;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@ActiveProfiles("shard")
+class ShardedMemberSearchExecutorTest {
+
+    @Autowired
+    MemberShards memberShards;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    void setUp(){
+        for(int i = 0; i < memberShards.size(); i++){
+            memberShards.inTransaction(i, em -> {
+                em.createQuery("delete from Member").executeUpdate();
+                em.createQuery("delete from Team").executeUpdate();
+            });
+        }
+        Team teamA = memberShards.saveTeam(new Team("teamA"));
+        Team teamB = memberShards.saveTeam(new Team("teamB"));
+        Team teamC = memberShards.saveTeam(new Team("teamC"));
+
+        memberShards.saveMember(new Member("member1", 10, teamA));
+        memberShards.saveMember(new Member("member2", 20, teamB));
+        memberShards.saveMember(new Member("member3", 30, teamC));
+        memberShards.saveMember(new Member("member4", 40, teamA));
+    }
+
+    @Test
+    void teamsArePartitioned() throws Exception{
+        List<MemberTeamDto> result = memberRepository.search(new MemberSearchCondition());
+
+        Set<Integer> shards = result.stream()
+                .map(dto -> memberShards.shardFor(dto.getTeamId()))
+                .collect(Collectors.toSet());
+        Assertions.assertThat(shards).containsOnly(0, 1, 2);
+    }
+
+    @Test
+    void searchGathersAllShards() throws Exception{
+        MemberSearchCondition condition = MemberSearchCondition.builder()
+                .ageGoe(20)
+                .build();
+
+        List<MemberTeamDto> result = memberRepository.search(condition);
+
+        Assertions.assertThat(result).extracting("username")
+                .containsExactly("member2", "member3", "member4");
+    }
+
+    @Test
+    void searchPageComplexMergesPages() throws Exception{
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(1, 3));
+
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(4);
+        Assertions.assertThat(result.getContent()).extracting("username").containsExactly("member4");
+    }
+
+    @Test
+    void everySearchPathReadsShards() throws Exception{
+        MemberSearchCondition condition = MemberSearchCondition.builder().ageGoe(20).build();
+
+        Assertions.assertThat(memberJpaRepository.search(condition)).extracting("username")
+                .containsExactly("member2", "member3", "member4");
+        Page<MemberTeamDto> page = memberRepository.searchPageSimple(condition, PageRequest.of(0, 2));
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(3);
+        Assertions.assertThat(page.getContent()).extracting("username").containsExactly("member2", "member3");
+    }
+
+    @Test
+    void primaryWritesAreRefused() throws Exception{
+        //기본 DB 에 쓰면 샤드와 데이터가 갈라지므로 막는다.
+        //샤드 EMF 는 앱의 엔티티 리스너를 돌리지 않으므로 setUp 의 샤드 쓰기는 이 가드에 걸리지 않는다
+        Assertions.assertThatThrownBy(() -> memberRepository.save(new Member("primary", 10, null)))
+                .hasStackTraceContaining("MemberShards");
+        Assertions.assertThatThrownBy(() -> memberRepository.bulkAgePlus(0))
+                .hasStackTraceContaining("MemberShards");
+    }
+
+    @Test
+    void destroyClosesPools() throws Exception{
+        ShardingProperties properties = new ShardingProperties();
+        properties.setUrls(List.of("jdbc:h2:mem:close0", "jdbc:h2:mem:close1"));
+        properties.setDdlAuto("none");
+        MemberShards shards = new MemberShards(properties);
+
+        shards.destroy();
+
+        for(int i = 0; i < shards.size(); i++){
+            Assertions.assertThat(shards.get(i).isOpen()).isFalse();
+            Assertions.assertThat(shards.dataSource(i).isClosed()).isTrue();
+        }
+    }
+}
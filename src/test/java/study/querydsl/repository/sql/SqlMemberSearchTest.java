@@ -0,0 +1,113 @@
+package study.querydsl.repository.sql;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSorts;
+import study.querydsl.repository.support.InvalidSortException;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+@SpringBootTest(properties = "member.search.sql.enabled=true")
+@Transactional
+class SqlMemberSearchTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    void setUp(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("noTeam", 50, null));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void searchMatchesJpaPath() throws Exception{
+        List<MemberSearchCondition> conditions = List.of(
+                new MemberSearchCondition(),
+                MemberSearchCondition.builder().teamName("teamB").ageGoe(35).build(),
+                MemberSearchCondition.builder().username("member2").build(),
+                MemberSearchCondition.builder().ageGoe(20).ageLoe(50).build(),
+                new MemberSearchCondition("member3", "teamB", 30, 30));
+
+        for(MemberSearchCondition condition : conditions){
+            Assertions.assertThat(memberRepository.search(condition))
+                    .containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+        }
+    }
+
+    @Test
+    void sortsFollowJpaPolicy() throws Exception{
+        //정렬 키는 MemberSorts.POLICY 에서 옮겨 오므로 허용/거부가 같다
+        for(String key : List.of("memberId", "username", "age", "teamId")){
+            Assertions.assertThat(SqlMemberSearch.SORTS.isAllowed(key)).isEqualTo(MemberSorts.POLICY.isAllowed(key));
+        }
+        Assertions.assertThatThrownBy(() -> SqlMemberSearch.SORTS.toOrderSpecifiers(Sort.by("teamName")))
+                .isInstanceOf(InvalidSortException.class);
+
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(new MemberSearchCondition(),
+                PageRequest.of(0, 10, Sort.by(Sort.Order.desc("teamId"), Sort.Order.asc("username"))));
+        Assertions.assertThat(result.getContent()).extracting("username")
+                .containsExactly("member3", "member4", "member1", "member2", "noTeam");
+    }
+
+    @Test
+    void searchPage() throws Exception{
+        MemberSearchCondition condition = MemberSearchCondition.builder().ageGoe(20).build();
+
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition,
+                PageRequest.of(0, 3, Sort.by(Sort.Order.desc("age"))));
+
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(4);
+        Assertions.assertThat(result.getContent()).extracting("username")
+                .containsExactly("noTeam", "member4", "member3");
+        Assertions.assertThat(result.getContent()).extracting("teamName")
+                .containsExactly(null, "teamB", "teamB");
+
+        //팀 조건이 있으면 카운트도 조인해서 센다
+        Page<MemberTeamDto> teamPage = memberRepository.searchPageSimple(
+                MemberSearchCondition.builder().teamName("teamA").build(), PageRequest.of(1, 1));
+        Assertions.assertThat(teamPage.getTotalElements()).isEqualTo(2);
+        Assertions.assertThat(teamPage.getContent()).extracting("username").containsExactly("member2");
+    }
+
+    @Test
+    void seesUnflushedChanges() throws Exception{
+        Team teamA = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult();
+        em.persist(new Member("member5", 60, teamA));
+
+        //같은 트랜잭션의 커넥션으로 읽고, 읽기 전에 플러시한다
+        List<MemberTeamDto> result = memberRepository.search(MemberSearchCondition.builder().teamName("teamA").build());
+
+        Assertions.assertThat(result).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2", "member5");
+    }
+}
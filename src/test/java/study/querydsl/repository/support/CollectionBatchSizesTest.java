@@ -0,0 +1,29 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = "fetch.collection-batch-size[Team.members]=7")
+class CollectionBatchSizesTest {
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Test
+    void overridesPerCollection() throws Exception{
+        //설정으로 덮어쓴 값, application.yml 의 값, 전역 기본값 순서
+        Assertions.assertThat(batchSizeOf("study.querydsl.entity.Team.members")).isEqualTo(7);
+        Assertions.assertThat(batchSizeOf("study.querydsl.entity.test.Forest.trees")).isEqualTo(200);
+        Assertions.assertThat(batchSizeOf("study.querydsl.entity.test.Tree.leaves")).isEqualTo(100);
+    }
+
+    private int batchSizeOf(String role){
+        return ((AbstractCollectionPersister) emf.unwrap(SessionFactoryImplementor.class)
+                .getMetamodel().collectionPersister(role)).getBatchSize();
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+class QueryTimeoutsTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @AfterEach
+    void tearDown(){
+        QueryTimeouts.clear();
+    }
+
+    @Test
+    void applyRemainingTimeAsHint() throws Exception{
+        QueryTimeouts.start(1500);
+
+        JPAQuery<Member> query = QueryTimeouts.apply(new JPAQueryFactory(em).selectFrom(member));
+
+        Assertions.assertThat(query.createQuery().getHints()).containsEntry(QueryTimeouts.TIMEOUT_HINT, 2000);
+    }
+
+    @Test
+    void noDeadlineNoHint() throws Exception{
+        JPAQuery<Member> query = QueryTimeouts.apply(new JPAQueryFactory(em).selectFrom(member));
+
+        Assertions.assertThat(query.createQuery().getHints()).doesNotContainKey(QueryTimeouts.TIMEOUT_HINT);
+    }
+
+    @Test
+    void deadlineExceeded() throws Exception{
+        QueryTimeouts.start(-1);
+
+        Assertions.assertThatThrownBy(() -> memberRepository.search(new MemberSearchCondition()))
+                .isInstanceOf(QueryTimeoutException.class);
+    }
+}
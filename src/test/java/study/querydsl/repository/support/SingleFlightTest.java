@@ -0,0 +1,60 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightTest {
+
+    SingleFlight singleFlight = new SingleFlight(true);
+
+    @Test
+    void shareOneExecution() throws Exception{
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for(int i = 0; i < callers; i++){
+                results.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    //나머지 요청이 모두 합류할 때까지 조회를 붙잡아 둔다
+                    while(coalesced() < callers - 1){
+                        Thread.onSpinWait();
+                    }
+                    return "result";
+                })));
+            }
+            for(Future<String> result : results){
+                Assertions.assertThat(result.get()).isEqualTo("result");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertThat(loads.get()).isEqualTo(1);
+        Assertions.assertThat(singleFlight.stats())
+                .containsEntry("executions", 1L)
+                .containsEntry("coalesced", (long) callers - 1)
+                .containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void failureIsNotCached() throws Exception{
+        Assertions.assertThatThrownBy(() -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("db down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        Assertions.assertThat(singleFlight.execute("key", () -> "ok")).isEqualTo("ok");
+    }
+
+    private long coalesced(){
+        return (long) singleFlight.stats().get("coalesced");
+    }
+}
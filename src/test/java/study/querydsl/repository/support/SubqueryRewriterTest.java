@@ -0,0 +1,155 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryCountContext;
+import study.querydsl.monitor.QueryCounter;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+class SubqueryRewriterTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    void setUp(){
+        queryFactory = new JPAQueryFactory(em);
+        for(int t = 0; t < 10; t++){
+            Team team = new Team("team" + t);
+            em.persist(team);
+            for(int i = 0; i < 200; i++){
+                em.persist(new Member("member" + t + "_" + i, (i * 7 + t * 3) % 80, t == 9 ? null : team));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void olderThanAverage() throws Exception{
+        QMember memberSub = new QMember("memberSub");
+        List<Member> correlated = queryFactory
+                .selectFrom(member)
+                .where(member.age.gt(JPAExpressions.select(memberSub.age.avg()).from(memberSub)))
+                .fetch();
+
+        QueryCounter.start();
+        List<Member> rewritten = memberRepository.findOlderThanAverage();
+        QueryCountContext context = QueryCounter.stop();
+
+        //평균을 먼저 구하고, 본 쿼리에는 상수로 들어간다
+        Assertions.assertThat(ids(rewritten)).isNotEmpty().containsExactlyInAnyOrderElementsOf(ids(correlated));
+        Assertions.assertThat(context.getCount()).isEqualTo(2);
+        Assertions.assertThat(selectCount(last(context))).isEqualTo(1);
+    }
+
+    @Test
+    void olderThanTeamAverage() throws Exception{
+        List<Member> expected = memberRepository.findAll().stream()
+                .filter(m -> m.getTeam() != null)
+                .collect(Collectors.groupingBy(m -> m.getTeam().getId()))
+                .values().stream()
+                .flatMap(members -> {
+                    double avg = members.stream().mapToInt(Member::getAge).average().orElse(0);
+                    return members.stream().filter(m -> m.getAge() > avg);
+                })
+                .collect(Collectors.toList());
+        em.clear();
+
+        QueryCounter.start();
+        List<Member> result = memberRepository.findOlderThanTeamAverage();
+        QueryCountContext context = QueryCounter.stop();
+
+        //팀 수와 상관없이 쿼리 하나, 파라미터 없는 상관 서브쿼리 하나
+        Assertions.assertThat(ids(result)).isNotEmpty().containsExactlyInAnyOrderElementsOf(ids(expected));
+        Assertions.assertThat(context.getCount()).isEqualTo(1);
+        Assertions.assertThat(selectCount(last(context))).isEqualTo(2);
+        Assertions.assertThat(last(context)).doesNotContain("?").doesNotContain(" or ");
+    }
+
+    @Test
+    void inSubqueryToSemiJoin() throws Exception{
+        QMember memberSub = new QMember("memberSub");
+        List<Member> subquery = queryFactory
+                .selectFrom(member)
+                .where(member.team.id.in(JPAExpressions
+                        .select(memberSub.team.id)
+                        .from(memberSub)
+                        .where(memberSub.age.gt(78))))
+                .fetch();
+
+        QueryCounter.start();
+        List<Member> rewritten = memberRepository.findInTeamsWithMemberOlderThan(78);
+        QueryCountContext context = QueryCounter.stop();
+
+        //값 목록을 먼저 읽고, 본 쿼리는 서브쿼리 없이 IN 목록으로 나간다
+        Assertions.assertThat(ids(rewritten)).isNotEmpty().containsExactlyInAnyOrderElementsOf(ids(subquery));
+        Assertions.assertThat(context.getCount()).isEqualTo(2);
+        Assertions.assertThat(selectCount(last(context))).isEqualTo(1);
+        Assertions.assertThat(last(context)).contains(" in (");
+    }
+
+    @Test
+    void semiJoinWithoutValues() throws Exception{
+        QueryCounter.start();
+        List<Member> result = memberRepository.findInTeamsWithMemberOlderThan(100);
+        QueryCountContext context = QueryCounter.stop();
+
+        Assertions.assertThat(result).isEmpty();
+        Assertions.assertThat(selectCount(last(context))).isEqualTo(1);
+        Assertions.assertThat(last(context)).doesNotContain(" is null");
+    }
+
+    @Test
+    void semiJoinFallsBackAboveLimit() throws Exception{
+        QMember memberSub = new QMember("memberSub");
+        SubqueryRewriter rewriter = new SubqueryRewriter(em, 2);
+
+        QueryCounter.start();
+        List<Member> result = queryFactory
+                .selectFrom(member)
+                .where(rewriter.semiJoin(member.team.id,
+                        JPAExpressions.select(memberSub.team.id).from(memberSub).where(memberSub.age.gt(70))))
+                .fetch();
+        QueryCountContext context = QueryCounter.stop();
+
+        //한도를 넘으면 값은 한도 + 1 개까지만 읽고, 본 쿼리는 원래 서브쿼리를 쓴다
+        Assertions.assertThat(result).isNotEmpty();
+        Assertions.assertThat(context.getStatements().get(0)).contains("limit");
+        Assertions.assertThat(selectCount(last(context))).isEqualTo(2);
+    }
+
+    private List<Long> ids(List<Member> members){
+        return members.stream().map(Member::getId).collect(Collectors.toList());
+    }
+
+    private String last(QueryCountContext context){
+        List<String> statements = context.getStatements();
+        return statements.get(statements.size() - 1).toLowerCase();
+    }
+
+    private int selectCount(String sql){
+        return sql.split("select ", -1).length - 1;
+    }
+}
@@ -0,0 +1,133 @@
+package study.querydsl.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamTransferResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SpringBootTest
+class TeamTransferServiceTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamTransferService teamTransferService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Long teamAId;
+    Long teamBId;
+    List<Long> memberIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for(int i = 0; i < 10; i++){
+                Member member = new Member("member" + i, 10 + i, teamA);
+                em.persist(member);
+                memberIds.add(member.getId());
+            }
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown(){
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void transferAllInOneTransactionPerTeam() throws Exception{
+        Map<Long, Long> moves = new HashMap<>();
+        memberIds.forEach(id -> moves.put(id, id % 2 == 0 ? teamBId : teamAId));
+
+        TeamTransferResult result = teamTransferService.transferAll(moves);
+
+        Assertions.assertThat(result.getAttempts()).isEqualTo(2);
+        Assertions.assertThat(result.getMoved()).isEqualTo((int) memberIds.stream().filter(id -> id % 2 == 0).count());
+        Assertions.assertThat(teamOf(memberIds.get(0))).isEqualTo(memberIds.get(0) % 2 == 0 ? teamBId : teamAId);
+    }
+
+    @Test
+    void transferAllReportsPartialFailure() throws Exception{
+        Map<Long, Long> moves = new HashMap<>();
+        moves.put(memberIds.get(0), teamBId);
+        moves.put(memberIds.get(1), -1L);
+
+        TeamTransferResult result = teamTransferService.transferAll(moves);
+
+        //팀마다 따로 커밋하므로 없는 팀으로 가는 이동만 실패하고 나머지는 남는다
+        Assertions.assertThat(result.isComplete()).isFalse();
+        Assertions.assertThat(result.getFailedMemberIds()).containsExactly(memberIds.get(1));
+        Assertions.assertThat(result.getMoved()).isEqualTo(1);
+        Assertions.assertThat(teamOf(memberIds.get(0))).isEqualTo(teamBId);
+        Assertions.assertThat(teamOf(memberIds.get(1))).isEqualTo(teamAId);
+    }
+
+    @Test
+    void staleUpdateIsRejected() throws Exception{
+        Long memberId = memberIds.get(0);
+
+        Assertions.assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            Member stale = em.find(Member.class, memberId);
+            //다른 트랜잭션이 먼저 팀을 옮기고 커밋
+            teamTransferService.transfer(memberId, teamBId);
+            stale.setAge(99);
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        Assertions.assertThat(teamOf(memberId)).isEqualTo(teamBId);
+    }
+
+    @Test
+    void concurrentTransfersRetry() throws Exception{
+        Long memberId = memberIds.get(0);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<TeamTransferResult>> results = new ArrayList<>();
+            for(int i = 0; i < threads * 4; i++){
+                Long target = i % 2 == 0 ? teamBId : teamAId;
+                results.add(executor.submit(() -> teamTransferService.transfer(memberId, target)));
+            }
+            for(Future<TeamTransferResult> result : results){
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Object> stats = teamTransferService.stats();
+        Assertions.assertThat((long) stats.get("attempts"))
+                .isEqualTo((long) stats.get("transfers") + (long) stats.get("conflicts"));
+        Assertions.assertThat(stats.get("exhausted")).isEqualTo(0L);
+    }
+
+    private Long teamOf(Long memberId){
+        return transactionTemplate.execute(status -> em.find(Member.class, memberId).getTeam().getId());
+    }
+}
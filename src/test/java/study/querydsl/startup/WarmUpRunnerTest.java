@@ -0,0 +1,58 @@
+package study.querydsl.startup;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.cache.TeamNameDictionary;
+
+import javax.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = {
+        "warmup.enabled=true",
+        "warmup.iterations=1",
+        "member.search.team-name-dictionary.enabled=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Transactional(readOnly = true)
+class WarmUpRunnerTest {
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    StartupMetrics startupMetrics;
+
+    @Autowired
+    TeamNameDictionary teamNameDictionary;
+
+    @Test
+    void queryPlansCompiledBeforeFirstRequest() throws Exception{
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long misses = statistics.getQueryPlanCacheMissCount();
+
+        //사전이 워밍업 전에 읽혀서 실제 요청과 같은 (조인 없는) 모양이 데워져 있다
+        Assertions.assertThat(teamNameDictionary.isUsable()).isTrue();
+        memberRepository.search(MemberSearchCondition.builder().username("member1").build());
+        memberRepository.searchPageComplex(MemberSearchCondition.builder().ageGoe(20).ageLoe(30).build(),
+                PageRequest.of(1, 1, Sort.by("username")));
+
+        Assertions.assertThat(startupMetrics.getWarmUpMillis()).isGreaterThanOrEqualTo(0);
+        Assertions.assertThat(statistics.getQueryPlanCacheMissCount()).isEqualTo(misses);
+    }
+
+    @Test
+    void countQueriesAreTallied() throws Exception{
+        //조건 4개 x (목록 2번 + 정렬 3개 x (searchPageSimple 카운트 + searchPageComplex 내용과 카운트)).
+        //fetchResults 는 카운트가 0 이면 내용을 읽지 않는다
+        Assertions.assertThat(startupMetrics.getWarmUpQueries()).isEqualTo(4 * (2 + 3 * 3));
+    }
+}